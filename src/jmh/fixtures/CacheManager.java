@@ -0,0 +1,106 @@
+package org.example.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A simple cache with per-entry expiry, used as a benchmark fixture.
+ */
+public class CacheManager<K, V> {
+
+    // TODO: make this configurable per cache instead of global
+    private static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Map<K, Entry<V>> entries = new LinkedHashMap<>();
+    private final int maxEntries;
+
+    // Hits and misses since the cache was created
+    private long hits = 0;
+    private long misses = 0;
+
+    public CacheManager(int maxEntries) {
+        // FIXME: a max of 0 should disable the cache rather than throw later
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gets a value from the cache
+     * @param key the key of the value
+     * @return the value, or null if it is missing or expired
+     */
+    public synchronized V get(K key) {
+        final Entry<V> entry = this.entries.get(key);
+        if( entry == null ) {
+            this.misses++;
+            return null;
+        }
+        // Expired entries are removed lazily, which is a hack until we have a
+        // background sweeper thread
+        if( entry.isExpired() ) {
+            this.entries.remove(key);
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        this.put(key, value, DEFAULT_TTL_MS);
+    }
+
+    public synchronized void put(K key, V value, long ttlMs) {
+        /* Evict the oldest entry when full. This is O(n) in the worst case
+           because of the iterator, but caches are small for now */
+        if( this.entries.size() >= this.maxEntries ) {
+            final Iterator<K> oldest = this.entries.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        // this.entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+        this.entries.put(key, new Entry<>(value, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+    }
+
+    public synchronized void clear() {
+        // XXX: should the hit counters be reset too?
+        this.entries.clear();
+    }
+
+    public synchronized double getHitRate() {
+        final long total = this.hits + this.misses;
+        // Avoid dividing by zero before any lookups
+        return total == 0 ? 0 : (double) this.hits / total;
+    }
+
+    public synchronized Map<K, V> snapshot() {
+        final Map<K, V> copy = new HashMap<>();
+        for( Map.Entry<K, Entry<V>> e : this.entries.entrySet() ) {
+            // Skip expired entries rather than removing them here,
+            // since removing would change the iteration order
+            if( !e.getValue().isExpired() ) {
+                copy.put(e.getKey(), e.getValue().value);
+            }
+        }
+        return copy;
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAtNanos;
+
+        Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired() {
+            // TODO this ignores clock adjustments, nanoTime should be fine but
+            // we have not tested it on every platform
+            return System.nanoTime() > this.expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.config;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses INI-style configuration files, used as a benchmark fixture.
+ */
+public class ConfigParser {
+
+    // Keys outside of any section are placed in this section
+    public static final String DEFAULT_SECTION = "default";
+
+    private final Map<String, Map<String, String>> sections = new HashMap<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * Parses a configuration file
+     * @param reader the contents of the file
+     * @throws IOException thrown if the file could not be read
+     */
+    public void parse(Reader reader) throws IOException {
+        final BufferedReader lines = new BufferedReader(reader);
+        String section = DEFAULT_SECTION;
+        String line;
+        int lineNumber = 0;
+        while( (line = lines.readLine()) != null ) {
+            lineNumber++;
+            line = line.trim();
+            // Skip blank lines and comments
+            if( line.isEmpty() || line.startsWith("#") || line.startsWith(";") ) {
+                continue;
+            }
+            if( line.startsWith("[") ) {
+                // TODO: nested sections like [a.b] are not supported yet
+                if( !line.endsWith("]") ) {
+                    this.warnings.add("Unterminated section on line " + lineNumber);
+                    continue;
+                }
+                section = line.substring(1, line.length() - 1).trim();
+                continue;
+            }
+            final int equals = line.indexOf('=');
+            if( equals == -1 ) {
+                // HACK: treat a bare key as a boolean flag until the spec says otherwise
+                this.put(section, line, "true");
+                continue;
+            }
+            this.put(section, line.substring(0, equals).trim(), unquote(line.substring(equals + 1).trim()));
+        }
+    }
+
+    private void put(String section, String key, String value) {
+        final Map<String, String> values = this.sections.computeIfAbsent(section, s -> new HashMap<>());
+        if( values.containsKey(key) ) {
+            // Later values win, which matches what the old shell scripts did
+            this.warnings.add("Duplicate key " + key + " in section " + section);
+        }
+        values.put(key, value);
+    }
+
+    /*
+     * Removes the quotes around a value. Escaped quotes inside of the value are
+     * not handled, this is a known limitation and needs to be fixed before
+     * we can parse the legacy files.
+     */
+    private static String unquote(String value) {
+        if( value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ) {
+            return value.substring(1, value.length() - 1);
+        }
+        // return value.replace("\\\"", "\"");
+        return value;
+    }
+
+    public String get(String section, String key) {
+        return this.sections.getOrDefault(section, Collections.emptyMap()).get(key);
+    }
+
+    public int getInt(String section, String key, int defaultValue) {
+        final String value = this.get(section, key);
+        if( value == null ) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // FIXME swallowing this hides typos in the config file
+            return defaultValue;
+        }
+    }
+
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(this.warnings);
+    }
+
+    /**
+     * Writes a section back out, used by the settings editor
+     */
+    public static class SectionWriter {
+
+        private final StringBuilder out = new StringBuilder();
+
+        public SectionWriter section(String name) {
+            // Sections are separated by a blank line for readability
+            if( this.out.length() > 0 ) {
+                this.out.append('\n');
+            }
+            this.out.append('[').append(name).append("]\n");
+            return this;
+        }
+
+        public SectionWriter value(String key, String value) {
+            // TODO quote values containing spaces
+            this.out.append(key).append(" = ").append(value).append('\n');
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return this.out.toString();
+        }
+    }
+}
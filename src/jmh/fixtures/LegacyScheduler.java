@@ -0,0 +1,119 @@
+package org.example.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks at fixed times on a single thread, used as a benchmark fixture.
+ *
+ * This class predates the executor framework and is only kept for the old plugins.
+ */
+@Deprecated
+public class LegacyScheduler implements Runnable {
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>(Comparator.comparingLong(t -> t.runAt));
+    private final List<Consumer<Throwable>> errorHandlers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    // The clock is injectable so tests can control time
+    private final Clock clock;
+
+    public LegacyScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LegacyScheduler() {
+        // TODO: remove once every plugin passes a clock
+        this(System::currentTimeMillis);
+    }
+
+    public synchronized void schedule(Runnable action, long delayMs) {
+        this.tasks.add(new Task(action, this.clock.now() + delayMs));
+        // Wake the scheduler thread in case this task is due before the current head
+        this.notifyAll();
+    }
+
+    public void onError(Consumer<Throwable> handler) {
+        this.errorHandlers.add(handler);
+    }
+
+    @Override
+    public void run() {
+        while( this.running ) {
+            final Task next;
+            synchronized (this) {
+                // Busy waiting here is a workaround for lost wake-ups on some JVMs,
+                // this should be replaced with a proper condition variable
+                while( this.running && (this.tasks.isEmpty() || this.tasks.peek().runAt > this.clock.now()) ) {
+                    try {
+                        this.wait(10);
+                    } catch (InterruptedException e) {
+                        // XXX interrupting the scheduler is not supported, ignore it for now
+                    }
+                }
+                if( !this.running ) {
+                    return;
+                }
+                next = this.tasks.poll();
+            }
+            try {
+                next.action.run();
+            } catch (Throwable t) {
+                /* Errors in one task must not stop the scheduler.
+                   Handlers run on the scheduler thread, so a slow handler delays
+                   every other task. This is a known issue. */
+                this.errorHandlers.forEach(handler -> handler.accept(t));
+            }
+        }
+    }
+
+    public synchronized void stop() {
+        this.running = false;
+        this.notifyAll();
+        // tasks.clear();
+    }
+
+    public synchronized int getPendingCount() {
+        return this.tasks.size();
+    }
+
+    private static class Task {
+        private final Runnable action;
+        private final long runAt;
+
+        Task(Runnable action, long runAt) {
+            this.action = action;
+            this.runAt = runAt;
+        }
+    }
+
+    /**
+     * A source of the current time in milliseconds
+     */
+    public interface Clock {
+        long now();
+    }
+
+    static class RepeatingTask implements Runnable {
+
+        private final LegacyScheduler scheduler;
+        private final Runnable action;
+        private final long periodMs;
+
+        RepeatingTask(LegacyScheduler scheduler, Runnable action, long periodMs) {
+            this.scheduler = scheduler;
+            this.action = action;
+            this.periodMs = periodMs;
+        }
+
+        @Override
+        public void run() {
+            // FIXME: drift accumulates because the next run is scheduled after this one finishes
+            this.action.run();
+            this.scheduler.schedule(this, this.periodMs);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package edu.rit.se.git;
+
+import lombok.Getter;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+
+/**
+ * A git repository generated in a temporary directory for benchmarks.
+ *
+ * The repository is either generated from a directory of java files, which are added by the
+ * first commit and have a few of their line comments added, removed or reworded by every later
+ * commit, or generated entirely from the shape of a SyntheticHistory. Either way, the history
+ * only depends on its inputs and seed, so the same repository is generated on every run.
+ */
+public class BenchmarkRepository implements AutoCloseable {
+
+    private static final PersonIdent AUTHOR = new PersonIdent("Benchmark", "benchmark@example.com");
+    private static final long FIRST_COMMIT_TIME = 1500000000000L;
+
+    // One in this many commits moves a file
+    private static final int MOVE_INTERVAL = 10;
+
+    // The directory containing the repository's working tree
+    @Getter
+    private final File directory;
+
+    @Getter
+    private final Git git;
+
+    // The lines of each file in the most recent commit, so only changed files are written
+    private final Map<String, List<String>> committedFiles = new HashMap<>();
+
+    // Every commit in the repository, oldest first
+    @Getter
+    private final List<RevCommit> commits = new ArrayList<>();
+
+    private BenchmarkRepository(File directory, Git git) {
+        this.directory = directory;
+        this.git = git;
+    }
+
+    /**
+     * @param sourceDirectory a directory of java files to add in the first commit
+     * @param nCommits the number of commits to make
+     * @param seed the seed of the edits made in each commit
+     * @return the generated repository
+     */
+    public static BenchmarkRepository generate(File sourceDirectory, int nCommits, long seed)
+            throws IOException, GitAPIException {
+        // The lines of each file, keyed by the file's path in the repository
+        final Map<String, List<String>> files = new LinkedHashMap<>();
+        for( final File file : FileUtils.listFiles(sourceDirectory, new String[]{"java"}, true) ) {
+            files.put(sourceDirectory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'),
+                    FileUtils.readLines(file, StandardCharsets.UTF_8));
+        }
+        if( files.isEmpty() ) {
+            throw new IllegalStateException("No java files found in " + sourceDirectory);
+        }
+        return generate(files, nCommits, seed, BenchmarkRepository::editFiles);
+    }
+
+    /**
+     * @param history the shape of the history to generate
+     * @return a repository whose files and history are generated as described by the history
+     */
+    public static BenchmarkRepository generate(SyntheticHistory history) throws IOException, GitAPIException {
+        final Random random = new Random(history.getSeed());
+        return generate(history.createFiles(random), history.getNCommits(), random.nextLong(), history::editFiles);
+    }
+
+    /**
+     * @param files the lines of each file to add in the first commit, keyed by the file's path
+     * @param nCommits the number of commits to make
+     * @param seed the seed of the edits made in each commit
+     * @param editor edits the files before each commit after the first
+     * @return the generated repository
+     */
+    private static BenchmarkRepository generate(Map<String, List<String>> files, int nCommits, long seed,
+                                                FileEditor editor) throws IOException, GitAPIException {
+        final File directory = Files.createTempDirectory("satd-benchmark").toFile();
+        final BenchmarkRepository repository = new BenchmarkRepository(directory,
+                Git.init().setDirectory(directory).call());
+        final Random random = new Random(seed);
+        for( int i = 0; i < nCommits; i++ ) {
+            if( i > 0 ) {
+                editor.editFiles(files, random, i);
+            }
+            repository.commit(files, i);
+        }
+        return repository;
+    }
+
+    private static void editFiles(Map<String, List<String>> files, Random random, int commitNumber) {
+        for( final List<String> lines : files.values() ) {
+            final List<Integer> commentLines = new ArrayList<>();
+            for( int i = 0; i < lines.size(); i++ ) {
+                if( lines.get(i).trim().startsWith("//") ) {
+                    commentLines.add(i);
+                }
+            }
+            // Work from the end of the file so earlier edits do not move the later lines
+            final List<Integer> linesToEdit = random.ints(3, 0, Math.max(1, commentLines.size()))
+                    .filter(index -> index < commentLines.size())
+                    .mapToObj(commentLines::get)
+                    .distinct()
+                    .sorted(Collections.reverseOrder())
+                    .collect(Collectors.toList());
+            for( final int line : linesToEdit ) {
+                final String indent = lines.get(line).substring(0, lines.get(line).indexOf("//"));
+                switch( random.nextInt(3) ) {
+                    case 0:
+                        lines.add(line, indent + "// TODO revisit this in change " + commitNumber);
+                        break;
+                    case 1:
+                        lines.remove(line);
+                        break;
+                    default:
+                        lines.set(line, lines.get(line) + " (reworded in change " + commitNumber + ")");
+                }
+            }
+        }
+        if( commitNumber % MOVE_INTERVAL == 0 ) {
+            final List<String> paths = new ArrayList<>(files.keySet());
+            final String path = paths.get(random.nextInt(paths.size()));
+            files.put("moved" + commitNumber + "/" + path.substring(path.lastIndexOf('/') + 1),
+                    files.remove(path));
+        }
+    }
+
+    private void commit(Map<String, List<String>> files, int commitNumber) throws IOException, GitAPIException {
+        for( final String path : this.committedFiles.keySet() ) {
+            if( !files.containsKey(path) ) {
+                FileUtils.forceDelete(new File(this.directory, path));
+            }
+        }
+        for( final Map.Entry<String, List<String>> file : files.entrySet() ) {
+            if( !file.getValue().equals(this.committedFiles.get(file.getKey())) ) {
+                FileUtils.writeLines(new File(this.directory, file.getKey()), StandardCharsets.UTF_8.name(),
+                        file.getValue(), "\n");
+            }
+        }
+        this.committedFiles.clear();
+        files.forEach((path, lines) -> this.committedFiles.put(path, new ArrayList<>(lines)));
+        this.git.add().addFilepattern(".").call();
+        this.git.add().setUpdate(true).addFilepattern(".").call();
+        final PersonIdent ident = new PersonIdent(AUTHOR,
+                new Date(FIRST_COMMIT_TIME + commitNumber * 3600000L), TimeZone.getTimeZone("UTC"));
+        this.commits.add(this.git.commit()
+                .setMessage("Change " + commitNumber)
+                .setAuthor(ident)
+                .setCommitter(ident)
+                .call());
+    }
+
+    /**
+     * @param commit a commit in the repository
+     * @return a reference to the commit
+     */
+    public RepositoryCommitReference getReference(RevCommit commit) {
+        return new RepositoryCommitReference(this.git, "benchmark", this.directory.toURI().toString(), commit);
+    }
+
+    /**
+     * Closes the repository and deletes its directory
+     */
+    @Override
+    public void close() throws IOException {
+        this.git.close();
+        FileUtils.deleteDirectory(this.directory);
+    }
+
+    /**
+     * Makes the changes to a repository's files committed by one commit
+     */
+    interface FileEditor {
+
+        /**
+         * @param files the lines of each file, keyed by the file's path, which are edited in place
+         * @param random the source of the edits made
+         * @param commitNumber the number of the commit the edits are made for
+         */
+        void editFiles(Map<String, List<String>> files, Random random, int commitNumber);
+    }
+}
@@ -0,0 +1,198 @@
+package edu.rit.se.git;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The shape of a generated repository's history. Every file is a generated java class whose
+ * methods contain simple statements, some of which are preceded by a comment, and each commit
+ * adds, removes and rewords the statements and comments of a few files.
+ */
+@Value
+@Builder
+public class SyntheticHistory {
+
+    private static final String[] WORDS = {"the", "value", "is", "checked", "before", "it", "is", "used",
+            "this", "loop", "handles", "each", "entry", "in", "order", "cache", "result", "for", "later",
+            "calls", "keep", "count", "of", "items", "update", "state", "when", "input", "changes"};
+
+    private static final String[] SATD_PREFIXES = {"TODO", "FIXME", "HACK", "XXX",
+            "this is a workaround until", "temporary fix, remove once"};
+
+    private static final String BODY_INDENT = "        ";
+    private static final String MEMBER_INDENT = "    ";
+
+    // The number of commits to make, including the one adding the initial files
+    @Builder.Default
+    int nCommits = 100;
+
+    // The number of files added by the first commit
+    @Builder.Default
+    int nFiles = 50;
+
+    // The number of files changed by each later commit
+    @Builder.Default
+    int filesPerCommit = 5;
+
+    @Builder.Default
+    int methodsPerFile = 8;
+
+    @Builder.Default
+    int statementsPerMethod = 10;
+
+    // The probability that a statement is preceded by a comment
+    @Builder.Default
+    double commentDensity = 0.2;
+
+    // The probability that a comment is SATD
+    @Builder.Default
+    double satdRatio = 0.3;
+
+    // The probability that a commit renames one of the files it changes
+    @Builder.Default
+    double renameRatio = 0.05;
+
+    // The probability that a commit moves one of the files it changes to another package
+    @Builder.Default
+    double moveRatio = 0.05;
+
+    @Builder.Default
+    long seed = 0;
+
+    /**
+     * @param random the source of the generated files
+     * @return the lines of each file added by the first commit, keyed by the file's path
+     */
+    Map<String, List<String>> createFiles(Random random) {
+        final Map<String, List<String>> files = new LinkedHashMap<>();
+        for( int i = 0; i < this.nFiles; i++ ) {
+            final List<String> lines = new ArrayList<>();
+            lines.add("package " + this.getPackage(i) + ";");
+            lines.add("");
+            lines.add("public class Generated" + i + " {");
+            lines.add("");
+            lines.add(MEMBER_INDENT + "private int total = 0;");
+            for( int j = 0; j < this.methodsPerFile; j++ ) {
+                lines.add("");
+                lines.addAll(this.createMethod("method" + j, random));
+            }
+            lines.add("}");
+            files.put(this.getPath(this.getPackage(i), "Generated" + i), lines);
+        }
+        return files;
+    }
+
+    /**
+     * Edits a few of the files, as one commit
+     * @param files the lines of each file, keyed by the file's path, which are edited in place
+     * @param random the source of the edits made
+     * @param commitNumber the number of the commit the edits are made for
+     */
+    void editFiles(Map<String, List<String>> files, Random random, int commitNumber) {
+        final List<String> paths = new ArrayList<>(files.keySet());
+        Collections.shuffle(paths, random);
+        final List<String> changedPaths = paths.subList(0, Math.min(this.filesPerCommit, paths.size()));
+        for( final String path : changedPaths ) {
+            final List<String> lines = files.get(path);
+            final int nEdits = 1 + random.nextInt(3);
+            for( int i = 0; i < nEdits; i++ ) {
+                this.editFile(lines, random, commitNumber, i);
+            }
+        }
+        if( !changedPaths.isEmpty() && random.nextDouble() < this.renameRatio ) {
+            final String path = changedPaths.get(random.nextInt(changedPaths.size()));
+            final String newPath = path.substring(0, path.lastIndexOf('/') + 1) + "Renamed" + commitNumber + "_" +
+                    path.substring(path.lastIndexOf('/') + 1);
+            files.put(newPath, files.remove(path));
+        }
+        if( !changedPaths.isEmpty() && random.nextDouble() < this.moveRatio ) {
+            final String path = changedPaths.get(random.nextInt(changedPaths.size()));
+            if( files.containsKey(path) ) {
+                final String name = path.substring(path.lastIndexOf('/') + 1, path.length() - ".java".length());
+                final String newPath = this.getPath(this.getPackage(random.nextInt(this.nFiles)) + ".moved", name);
+                if( !files.containsKey(newPath) ) {
+                    files.put(newPath, files.remove(path));
+                }
+            }
+        }
+    }
+
+    private void editFile(List<String> lines, Random random, int commitNumber, int editNumber) {
+        final List<Integer> bodyLines = new ArrayList<>();
+        final List<Integer> commentLines = new ArrayList<>();
+        for( int i = 0; i < lines.size(); i++ ) {
+            if( lines.get(i).startsWith(BODY_INDENT) ) {
+                bodyLines.add(i);
+                if( lines.get(i).trim().startsWith("//") ) {
+                    commentLines.add(i);
+                }
+            }
+        }
+        final int edit = random.nextInt(commentLines.isEmpty() || bodyLines.isEmpty() ? 2 : 5);
+        if( edit == 0 || bodyLines.isEmpty() ) {
+            // Add a method before the closing brace of the class
+            final List<String> method = new ArrayList<>();
+            method.add("");
+            method.addAll(this.createMethod("added" + commitNumber + "_" + editNumber, random));
+            lines.addAll(lines.size() - 1, method);
+        } else if( edit == 1 ) {
+            // Add a statement, and maybe a comment, to a method
+            lines.addAll(bodyLines.get(random.nextInt(bodyLines.size())), this.createStatement(random));
+        } else {
+            final int line = commentLines.get(random.nextInt(commentLines.size()));
+            if( edit == 2 ) {
+                lines.remove(line);
+            } else if( edit == 3 ) {
+                lines.set(line, lines.get(line) + " " + WORDS[random.nextInt(WORDS.length)]);
+            } else {
+                lines.set(line, BODY_INDENT + "// " + this.createComment(random));
+            }
+        }
+    }
+
+    private List<String> createMethod(String name, Random random) {
+        final List<String> lines = new ArrayList<>();
+        lines.add(MEMBER_INDENT + "public void " + name + "() {");
+        for( int i = 0; i < Math.max(1, this.statementsPerMethod); i++ ) {
+            lines.addAll(this.createStatement(random));
+        }
+        lines.add(MEMBER_INDENT + "}");
+        return lines;
+    }
+
+    private List<String> createStatement(Random random) {
+        final List<String> lines = new ArrayList<>();
+        if( random.nextDouble() < this.commentDensity ) {
+            lines.add(BODY_INDENT + "// " + this.createComment(random));
+        }
+        lines.add(BODY_INDENT + "this.total += " + random.nextInt(1000) + ";");
+        return lines;
+    }
+
+    private String createComment(Random random) {
+        final StringBuilder comment = new StringBuilder();
+        if( random.nextDouble() < this.satdRatio ) {
+            comment.append(SATD_PREFIXES[random.nextInt(SATD_PREFIXES.length)]).append(' ');
+        }
+        final int nWords = 3 + random.nextInt(8);
+        for( int i = 0; i < nWords; i++ ) {
+            comment.append(i > 0 ? " " : "").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return comment.toString();
+    }
+
+    private String getPackage(int fileNumber) {
+        return "org.example.generated.pkg" + fileNumber / 10;
+    }
+
+    private String getPath(String packageName, String className) {
+        return "src/main/java/" + packageName.replace('.', '/') + "/" + className + ".java";
+    }
+}
@@ -0,0 +1,447 @@
+package edu.rit.se.satd;
+
+import edu.rit.se.git.BenchmarkRepository;
+import edu.rit.se.git.RepositoryCommitReference;
+import edu.rit.se.git.SyntheticHistory;
+import edu.rit.se.satd.detector.CachingSATDDetector;
+import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.detector.SATDDetectorImpl;
+import edu.rit.se.satd.metrics.LatencyHistogram;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.RepositoryMetrics;
+import edu.rit.se.satd.metrics.Stage;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import edu.rit.se.satd.writer.InMemoryOutputWriter;
+import edu.rit.se.util.JavaParseUtil;
+import edu.rit.se.util.ParsedCommentCache;
+import lombok.Value;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures the throughput of the whole mining pipeline. A repository is generated from a
+ * SyntheticHistory and mined by an SATDMiner into an InMemoryOutputWriter, and the diffs mined
+ * per second, the time taken to mine each diff, the peak heap used and the rate at which memory
+ * was allocated are reported. The time taken by each diff is the DIFF_MINING stage recorded by
+ * MinerMetrics, so its percentiles are estimated from the buckets of that stage's histogram.
+ *
+ * The repository is mined once to warm up the JVM before the measured run. Classifications are
+ * cached from the warm-up run, as they are between repositories mined in one run, so the measured
+ * run depends on this project's code rather than on the speed of the SATD detection model.
+ *
+ * Throughput depends on the machine, so a build is failed by comparing it with a baseline: the
+ * result of an earlier run on the same machine with the same options. The benchmark exits with
+ * status 1 when fewer diffs are mined per second than the given fraction of the baseline's.
+ */
+public class ThroughputBenchmark {
+
+    private static final String ARG_NAME_COMMITS = "c";
+    private static final String ARG_NAME_FILES = "f";
+    private static final String ARG_NAME_FILES_PER_COMMIT = "p";
+    private static final String ARG_NAME_COMMENT_DENSITY = "d";
+    private static final String ARG_NAME_SATD_RATIO = "s";
+    private static final String ARG_NAME_RENAME_RATIO = "r";
+    private static final String ARG_NAME_MOVE_RATIO = "m";
+    private static final String ARG_NAME_SEED = "e";
+    private static final String ARG_NAME_THREADS = "t";
+    private static final String ARG_NAME_COMMENT_PARSER = "a";
+    private static final String ARG_NAME_WARMUP_RUNS = "w";
+    private static final String ARG_NAME_OUTPUT = "o";
+    private static final String ARG_NAME_MIN_DIFFS_PER_SECOND = "g";
+    private static final String ARG_NAME_BASELINE = "b";
+    private static final String ARG_NAME_MIN_BASELINE_RATIO = "l";
+    private static final String ARG_NAME_UNCACHED_DETECTOR = "u";
+    private static final String ARG_NAME_HELP = "h";
+
+    // How often the memory allocated by each thread is sampled
+    private static final long ALLOCATION_SAMPLE_INTERVAL_MS = 20;
+
+    // A field of a result written by toJson, whose fields are each on their own line
+    private static final Pattern JSON_FIELD = Pattern.compile("^\\s*\"(\\w+)\": (.*?),?$", Pattern.MULTILINE);
+
+    public static void main(String[] args) throws Exception {
+        final Options options = getOptions();
+        final CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getLocalizedMessage());
+            new HelpFormatter().printHelp("throughput-benchmark", options);
+            System.exit(2);
+            return;
+        }
+        if( cmd.hasOption(ARG_NAME_HELP) ) {
+            new HelpFormatter().printHelp("throughput-benchmark", options);
+            return;
+        }
+
+        final SyntheticHistory history = SyntheticHistory.builder()
+                .nCommits(Integer.parseInt(cmd.getOptionValue(ARG_NAME_COMMITS, "100")))
+                .nFiles(Integer.parseInt(cmd.getOptionValue(ARG_NAME_FILES, "50")))
+                .filesPerCommit(Integer.parseInt(cmd.getOptionValue(ARG_NAME_FILES_PER_COMMIT, "5")))
+                .commentDensity(Double.parseDouble(cmd.getOptionValue(ARG_NAME_COMMENT_DENSITY, "0.2")))
+                .satdRatio(Double.parseDouble(cmd.getOptionValue(ARG_NAME_SATD_RATIO, "0.3")))
+                .renameRatio(Double.parseDouble(cmd.getOptionValue(ARG_NAME_RENAME_RATIO, "0.05")))
+                .moveRatio(Double.parseDouble(cmd.getOptionValue(ARG_NAME_MOVE_RATIO, "0.05")))
+                .seed(Long.parseLong(cmd.getOptionValue(ARG_NAME_SEED, "0")))
+                .build();
+        final MinerConfiguration config = MinerConfiguration.builder()
+                .commentParser(JavaParseUtil.CommentParser.valueOf(
+                        cmd.getOptionValue(ARG_NAME_COMMENT_PARSER, "JAVAPARSER").toUpperCase()))
+                .errorOutputEnabled(false)
+                .build();
+        final int nThreads = Integer.parseInt(cmd.getOptionValue(ARG_NAME_THREADS, "1"));
+        final int nWarmupRuns = Integer.parseInt(cmd.getOptionValue(ARG_NAME_WARMUP_RUNS, "1"));
+        final boolean uncachedDetector = cmd.hasOption(ARG_NAME_UNCACHED_DETECTOR);
+        final Map<String, String> runOptions = describeRun(history, config, nThreads, uncachedDetector);
+
+        // The time taken by each diff is taken from the stages recorded while mining
+        MinerMetrics.setEnabled(true);
+
+        final Result result;
+        System.out.println("Generating a repository of " + history.getNCommits() + " commits");
+        try (BenchmarkRepository repository = BenchmarkRepository.generate(history)) {
+            final SATDDetector detector = uncachedDetector ?
+                    new SATDDetectorImpl() : new CachingSATDDetector(new SATDDetectorImpl());
+            for( int i = 0; i < nWarmupRuns; i++ ) {
+                System.out.println("Warm up run " + (i + 1) + " of " + nWarmupRuns);
+                mine(repository, detector, config, nThreads);
+            }
+            System.out.println("Measured run");
+            result = mine(repository, detector, config, nThreads);
+        }
+
+        System.out.println(result.toSummary());
+        // Read before the result is written, as the result may replace the baseline
+        final Map<String, String> baseline = cmd.hasOption(ARG_NAME_BASELINE) ?
+                readBaseline(new File(cmd.getOptionValue(ARG_NAME_BASELINE))) : null;
+        if( cmd.hasOption(ARG_NAME_OUTPUT) ) {
+            final File outputFile = new File(cmd.getOptionValue(ARG_NAME_OUTPUT));
+            FileUtils.writeStringToFile(outputFile, result.toJson(runOptions), StandardCharsets.UTF_8);
+            System.out.println("Result is saved to " + outputFile);
+        }
+        if( baseline != null ) {
+            final double minRatio = Double.parseDouble(cmd.getOptionValue(ARG_NAME_MIN_BASELINE_RATIO, "0.8"));
+            compareToBaseline(result, runOptions, baseline, minRatio);
+        }
+        final double minDiffsPerSecond = Double.parseDouble(cmd.getOptionValue(ARG_NAME_MIN_DIFFS_PER_SECOND, "0"));
+        if( result.getDiffsPerSecond() < minDiffsPerSecond ) {
+            System.err.println(String.format(Locale.ROOT, "Throughput of %.2f diffs/s is below the minimum of %.2f",
+                    result.getDiffsPerSecond(), minDiffsPerSecond));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param baselineFile a result written by toJson
+     * @return the fields of the result, or null if there is no baseline, so the first run on a
+     * machine can record one
+     */
+    private static Map<String, String> readBaseline(File baselineFile) throws IOException {
+        if( !baselineFile.isFile() ) {
+            System.out.println("No baseline found at " + baselineFile + ", so throughput is not compared. " +
+                    "Copy a result written with --output there to record one.");
+            return null;
+        }
+        final Map<String, String> baseline = new HashMap<>();
+        final Matcher field = JSON_FIELD.matcher(FileUtils.readFileToString(baselineFile, StandardCharsets.UTF_8));
+        while( field.find() ) {
+            baseline.put(field.group(1), field.group(2));
+        }
+        return baseline;
+    }
+
+    /**
+     * Exits with status 1 if the result mined fewer diffs per second than the given fraction of
+     * the baseline's, or with status 2 if the baseline was run with different options
+     */
+    private static void compareToBaseline(Result result, Map<String, String> runOptions, Map<String, String> baseline,
+                                          double minRatio) {
+        for( final Map.Entry<String, String> option : runOptions.entrySet() ) {
+            if( !option.getValue().equals(baseline.get(option.getKey())) ) {
+                System.err.println("The baseline was run with " + option.getKey() + " " +
+                        baseline.get(option.getKey()) + " rather than " + option.getValue());
+                System.exit(2);
+            }
+        }
+        final double baselineDiffsPerSecond = Double.parseDouble(baseline.get("diffsPerSecond"));
+        final double ratio = result.getDiffsPerSecond() / baselineDiffsPerSecond;
+        System.out.println(String.format(Locale.ROOT, "Throughput is %.2f of the baseline's %.2f diffs/s",
+                ratio, baselineDiffsPerSecond));
+        if( ratio < minRatio ) {
+            System.err.println(String.format(Locale.ROOT,
+                    "Throughput of %.2f diffs/s is below %.2f of the baseline's %.2f diffs/s",
+                    result.getDiffsPerSecond(), minRatio, baselineDiffsPerSecond));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the options of a run which must match for two results to be compared, as JSON values
+     */
+    private static Map<String, String> describeRun(SyntheticHistory history, MinerConfiguration config,
+                                                   int nThreads, boolean uncachedDetector) {
+        final Map<String, String> options = new LinkedHashMap<>();
+        options.put("commits", String.valueOf(history.getNCommits()));
+        options.put("files", String.valueOf(history.getNFiles()));
+        options.put("filesPerCommit", String.valueOf(history.getFilesPerCommit()));
+        options.put("commentDensity", String.valueOf(history.getCommentDensity()));
+        options.put("satdRatio", String.valueOf(history.getSatdRatio()));
+        options.put("renameRatio", String.valueOf(history.getRenameRatio()));
+        options.put("moveRatio", String.valueOf(history.getMoveRatio()));
+        options.put("seed", String.valueOf(history.getSeed()));
+        options.put("threads", String.valueOf(nThreads));
+        options.put("commentParser", "\"" + config.getCommentParser() + "\"");
+        options.put("uncachedDetector", String.valueOf(uncachedDetector));
+        return options;
+    }
+
+    /**
+     * Mines every commit in the repository
+     * @return the measurements of the run
+     */
+    private static Result mine(BenchmarkRepository repository, SATDDetector detector, MinerConfiguration config,
+                               int nThreads) throws IOException {
+        // Each run starts with no parsed comments cached, as a new run of the miner would
+        ParsedCommentCache.setMaxBytes(ParsedCommentCache.DEFAULT_MAX_BYTES);
+        final SATDMiner miner = new SATDMiner(repository.getDirectory().getPath(), detector, config);
+        miner.disableStatusOutput();
+        miner.setNThreads(nThreads);
+        final RepositoryCommitReference head = miner.getBaseCommit(null);
+        if( head == null ) {
+            throw new IOException("Could not open the generated repository");
+        }
+        final InMemoryOutputWriter writer = new InMemoryOutputWriter();
+
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for( final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getType() == MemoryType.HEAP ) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        final AllocationSampler allocations = new AllocationSampler();
+
+        final long startTime = System.nanoTime();
+        miner.writeRepoSATD(head, writer);
+        final long endTime = System.nanoTime();
+
+        final long allocatedBytes = allocations.stop();
+        long peakHeapBytes = 0;
+        for( final MemoryPoolMXBean pool : heapPools ) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        miner.cleanRepo();
+
+        // This run's repository was the last to be begun
+        final List<RepositoryMetrics> repositories = MinerMetrics.getRepositories();
+        final LatencyHistogram diffTimes = repositories.get(repositories.size() - 1).getHistogram(Stage.DIFF_MINING);
+        final double seconds = (endTime - startTime) / 1e9;
+        return new Result(writer.getNDiffsWritten(), writer.getNInstancesWritten(), seconds,
+                writer.getNDiffsWritten() / seconds,
+                diffTimes.getCount() > 0 ? diffTimes.getTotalSeconds() * 1000 / diffTimes.getCount() : 0,
+                diffTimes.getPercentileSeconds(50) * 1000, diffTimes.getPercentileSeconds(99) * 1000,
+                peakHeapBytes, allocatedBytes < 0 ? -1 : allocatedBytes / seconds);
+    }
+
+    /**
+     * @return the options for the CLI
+     */
+    private static Options getOptions() {
+        return new Options()
+                .addOption(numberOption(ARG_NAME_COMMITS, "commits", "the number of commits to generate (default 100)"))
+                .addOption(numberOption(ARG_NAME_FILES, "files", "the number of files in the first commit (default 50)"))
+                .addOption(numberOption(ARG_NAME_FILES_PER_COMMIT, "files-per-commit",
+                        "the number of files changed by each commit (default 5)"))
+                .addOption(numberOption(ARG_NAME_COMMENT_DENSITY, "comment-density",
+                        "the probability that a statement is preceded by a comment (default 0.2)"))
+                .addOption(numberOption(ARG_NAME_SATD_RATIO, "satd-ratio",
+                        "the probability that a comment is SATD (default 0.3)"))
+                .addOption(numberOption(ARG_NAME_RENAME_RATIO, "rename-ratio",
+                        "the probability that a commit renames a file (default 0.05)"))
+                .addOption(numberOption(ARG_NAME_MOVE_RATIO, "move-ratio",
+                        "the probability that a commit moves a file to another package (default 0.05)"))
+                .addOption(numberOption(ARG_NAME_SEED, "seed", "the seed of the generated repository (default 0)"))
+                .addOption(numberOption(ARG_NAME_THREADS, "threads", "the number of diffs to mine in parallel (default 1)"))
+                .addOption(Option.builder(ARG_NAME_COMMENT_PARSER)
+                        .longOpt("comment-parser")
+                        .hasArg()
+                        .argName("PARSER")
+                        .desc("the parser to use for finding comments: JAVAPARSER (default) or LEXER")
+                        .build())
+                .addOption(numberOption(ARG_NAME_WARMUP_RUNS, "warmup-runs",
+                        "the number of times to mine the repository before the measured run (default 1)"))
+                .addOption(Option.builder(ARG_NAME_OUTPUT)
+                        .longOpt("output")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("a file to write the result to as JSON")
+                        .build())
+                .addOption(numberOption(ARG_NAME_MIN_DIFFS_PER_SECOND, "min-diffs-per-second",
+                        "exit with status 1 if fewer diffs than this are mined per second (default 0). " +
+                                "Only meaningful on the machine the minimum was measured on"))
+                .addOption(Option.builder(ARG_NAME_BASELINE)
+                        .longOpt("baseline")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("a result written with --output by an earlier run on this machine with the " +
+                                "same options, to compare the throughput of this run to")
+                        .build())
+                .addOption(numberOption(ARG_NAME_MIN_BASELINE_RATIO, "min-baseline-ratio",
+                        "exit with status 1 if fewer diffs are mined per second than this fraction of " +
+                                "the baseline's (default 0.8)"))
+                .addOption(Option.builder(ARG_NAME_UNCACHED_DETECTOR)
+                        .longOpt("uncached-detector")
+                        .desc("classify every comment in the measured run, rather than reusing the " +
+                                "classifications of the warm-up runs")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_HELP)
+                        .longOpt("help")
+                        .desc("display help menu")
+                        .build());
+    }
+
+    private static Option numberOption(String name, String longName, String description) {
+        return Option.builder(name)
+                .longOpt(longName)
+                .hasArg()
+                .type(Number.class)
+                .argName("N")
+                .desc(description)
+                .build();
+    }
+
+    /**
+     * Samples the memory allocated by every thread, so the memory allocated by threads which
+     * end before sampling stops is counted up to their last sample
+     */
+    private static class AllocationSampler {
+
+        private final com.sun.management.ThreadMXBean threads;
+        private final ScheduledExecutorService sampler;
+
+        // The bytes allocated by each thread when sampling started, and when last sampled
+        private final Map<Long, Long> startBytes = new HashMap<>();
+        private final Map<Long, Long> lastBytes = new HashMap<>();
+
+        AllocationSampler() {
+            final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if( threadBean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported() ) {
+                this.threads = (com.sun.management.ThreadMXBean) threadBean;
+                this.threads.setThreadAllocatedMemoryEnabled(true);
+                this.sample(this.startBytes);
+                this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "allocation-sampler");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                this.sampler.scheduleAtFixedRate(() -> this.sample(this.lastBytes),
+                        ALLOCATION_SAMPLE_INTERVAL_MS, ALLOCATION_SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } else {
+                this.threads = null;
+                this.sampler = null;
+            }
+        }
+
+        private synchronized void sample(Map<Long, Long> bytesByThread) {
+            final long[] ids = this.threads.getAllThreadIds();
+            final long[] bytes = this.threads.getThreadAllocatedBytes(ids);
+            for( int i = 0; i < ids.length; i++ ) {
+                if( bytes[i] >= 0 ) {
+                    bytesByThread.put(ids[i], bytes[i]);
+                }
+            }
+        }
+
+        /**
+         * @return the bytes allocated since sampling started, or -1 if allocations cannot be measured
+         */
+        synchronized long stop() {
+            if( this.threads == null ) {
+                return -1;
+            }
+            this.sampler.shutdownNow();
+            this.sample(this.lastBytes);
+            long allocated = 0;
+            for( final Map.Entry<Long, Long> thread : this.lastBytes.entrySet() ) {
+                allocated += thread.getValue() - this.startBytes.getOrDefault(thread.getKey(), 0L);
+            }
+            return allocated;
+        }
+    }
+
+    /**
+     * The measurements of a run
+     */
+    @Value
+    private static class Result {
+        int nDiffs;
+        long nInstances;
+        double seconds;
+        double diffsPerSecond;
+        double meanDiffMs;
+        double p50DiffMs;
+        double p99DiffMs;
+        long peakHeapBytes;
+        double allocatedBytesPerSecond;
+
+        String toSummary() {
+            return String.format(Locale.ROOT,
+                    "Mined %d diffs (%d SATD instances) in %.2fs: %.2f diffs/s, mean %.2fms/diff, " +
+                            "p50 <= %.2fms/diff, p99 <= %.2fms/diff, peak heap %.1fMB, allocated %.1fMB/s",
+                    this.nDiffs, this.nInstances, this.seconds, this.diffsPerSecond, this.meanDiffMs,
+                    this.p50DiffMs, this.p99DiffMs, this.peakHeapBytes / 1048576.0, this.allocatedBytesPerSecond / 1048576.0);
+        }
+
+        /**
+         * @param runOptions the options of the run, from describeRun
+         * @return the options and measurements of the run as JSON, with each field on its own line
+         */
+        String toJson(Map<String, String> runOptions) {
+            final StringBuilder json = new StringBuilder("{\n");
+            for( final Map.Entry<String, String> option : runOptions.entrySet() ) {
+                json.append("  \"").append(option.getKey()).append("\": ").append(option.getValue()).append(",\n");
+            }
+            json.append(String.format(Locale.ROOT,
+                    "  \"diffs\": %d,\n" +
+                            "  \"satdInstances\": %d,\n" +
+                            "  \"seconds\": %.3f,\n" +
+                            "  \"diffsPerSecond\": %.3f,\n" +
+                            "  \"meanDiffMs\": %.3f,\n" +
+                            "  \"p50DiffMs\": %.3f,\n" +
+                            "  \"p99DiffMs\": %.3f,\n" +
+                            "  \"peakHeapBytes\": %d,\n" +
+                            "  \"allocatedBytesPerSecond\": %.0f\n" +
+                            "}\n",
+                    this.nDiffs, this.nInstances, this.seconds, this.diffsPerSecond, this.meanDiffMs,
+                    this.p50DiffMs, this.p99DiffMs, this.peakHeapBytes, this.allocatedBytesPerSecond));
+            return json.toString();
+        }
+    }
+}
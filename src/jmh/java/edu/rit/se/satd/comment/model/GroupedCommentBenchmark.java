@@ -0,0 +1,76 @@
+package edu.rit.se.satd.comment.model;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.comments.Comment;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to create GroupedComments from the comments JavaParser finds in a
+ * directory of java files, both when the structure of each file is built once and shared by
+ * its comments, and when it is rebuilt for every comment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GroupedCommentBenchmark {
+
+    // A directory containing the java files to take the comments from
+    @Param({"src/jmh/fixtures"})
+    public String sourceDirectory;
+
+    private final List<CompilationUnit> files = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        for( final File file : FileUtils.listFiles(new File(this.sourceDirectory), new String[]{"java"}, true) ) {
+            final ParseResult<CompilationUnit> result = new JavaParser().parse(file);
+            if( result.isSuccessful() && result.getResult().isPresent() ) {
+                this.files.add(result.getResult().get());
+            }
+        }
+        if( this.files.isEmpty() ) {
+            throw new IllegalStateException("No parsable java files found in " + this.sourceDirectory);
+        }
+    }
+
+    @Benchmark
+    public void sharedStructure(Blackhole blackhole) {
+        for( final CompilationUnit file : this.files ) {
+            final FileStructure structure = FileStructure.fromJavaParser(file);
+            for( final Comment comment : file.getAllContainedComments() ) {
+                blackhole.consume(GroupedComment.fromJavaParserComment(comment, structure));
+            }
+        }
+    }
+
+    @Benchmark
+    public void structurePerComment(Blackhole blackhole) {
+        for( final CompilationUnit file : this.files ) {
+            for( final Comment comment : file.getAllContainedComments() ) {
+                blackhole.consume(GroupedComment.fromJavaParserComment(comment));
+            }
+        }
+    }
+}
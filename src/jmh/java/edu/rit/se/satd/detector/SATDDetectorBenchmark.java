@@ -0,0 +1,79 @@
+package edu.rit.se.satd.detector;
+
+import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import edu.rit.se.util.JavaParseUtil;
+import edu.rit.se.util.KnownParserException;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time taken to classify every comment in a directory of java files, either by the
+ * SATD detection model, or by a CachingSATDDetector which has already classified each comment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SATDDetectorBenchmark {
+
+    // A directory containing the java files to take the comments from
+    @Param({"src/jmh/fixtures"})
+    public String sourceDirectory;
+
+    @Param({"MODEL", "CACHED"})
+    public String detectorType;
+
+    private final List<String> comments = new ArrayList<>();
+
+    private SATDDetector detector;
+
+    @Setup
+    public void setUp() throws Exception {
+        final MinerConfiguration config = MinerConfiguration.builder().build();
+        for( final File file : FileUtils.listFiles(new File(this.sourceDirectory), new String[]{"java"}, true) ) {
+            try (InputStream in = new FileInputStream(file)) {
+                for( final GroupedComment comment : JavaParseUtil.parseFileForComments(in, file.getPath(), config) ) {
+                    this.comments.add(comment.getComment());
+                }
+            } catch (KnownParserException e) {
+                // Files JavaParser rejects are left out, as the miner finds no comments in them
+            }
+        }
+        if( this.comments.isEmpty() ) {
+            throw new IllegalStateException("No comments found in " + this.sourceDirectory);
+        }
+        this.detector = new SATDDetectorImpl();
+        if( this.detectorType.equals("CACHED") ) {
+            this.detector = new CachingSATDDetector(this.detector);
+            this.comments.forEach(this.detector::isSATD);
+        }
+    }
+
+    @Benchmark
+    public void classifyComments(Blackhole blackhole) {
+        for( final String comment : this.comments ) {
+            blackhole.consume(this.detector.isSATD(comment));
+        }
+    }
+}
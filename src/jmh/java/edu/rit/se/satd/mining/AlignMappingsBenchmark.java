@@ -0,0 +1,102 @@
+package edu.rit.se.satd.mining;
+
+import edu.rit.se.git.BenchmarkRepository;
+import edu.rit.se.git.RepositoryCommitReference;
+import edu.rit.se.satd.comment.model.OldToNewCommentMapping;
+import edu.rit.se.satd.comment.model.RepositoryComments;
+import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.mining.diff.CommitToCommitDiff;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the time taken to align the comments in the files changed by each commit of a
+ * generated repository with the comments in the same files before the commit, as
+ * RepositoryDiffMiner does before looking for changed SATD.
+ *
+ * Every comment is treated as SATD, so each commit has as many comments to align as possible.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AlignMappingsBenchmark {
+
+    // A directory containing the java files to generate the repository from
+    @Param({"src/jmh/fixtures"})
+    public String sourceDirectory;
+
+    @Param({"50"})
+    public int nCommits;
+
+    // The comments before and after each commit
+    private final List<Map<String, RepositoryComments>> oldComments = new ArrayList<>();
+    private final List<Map<String, RepositoryComments>> newComments = new ArrayList<>();
+
+    // Mappings of the comments, which are reset before each invocation
+    private final List<List<OldToNewCommentMapping>> oldMappings = new ArrayList<>();
+    private final List<List<OldToNewCommentMapping>> newMappings = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        final SATDDetector detector = comment -> true;
+        final MinerConfiguration config = MinerConfiguration.builder().build();
+        try (BenchmarkRepository repository = BenchmarkRepository.generate(
+                new File(this.sourceDirectory), this.nCommits, 0)) {
+            final List<RevCommit> commits = repository.getCommits();
+            for( int i = 1; i < commits.size(); i++ ) {
+                final RepositoryCommitReference oldRef = repository.getReference(commits.get(i - 1));
+                final RepositoryCommitReference newRef = repository.getReference(commits.get(i));
+                final CommitToCommitDiff diff = new CommitToCommitDiff(oldRef, newRef, detector, config);
+                this.oldComments.add(oldRef.getFilesToSATDOccurrences(detector, diff.getModifiedFilesOld(), config));
+                this.newComments.add(newRef.getFilesToSATDOccurrences(detector, diff.getModifiedFilesNew(), config));
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createMappings() {
+        this.oldMappings.clear();
+        this.newMappings.clear();
+        this.oldComments.stream().map(AlignMappingsBenchmark::toMappings).forEach(this.oldMappings::add);
+        this.newComments.stream().map(AlignMappingsBenchmark::toMappings).forEach(this.newMappings::add);
+    }
+
+    @Benchmark
+    public void alignMappings() {
+        for( int i = 0; i < this.oldMappings.size(); i++ ) {
+            RepositoryDiffMiner.alignMappingLists(
+                    this.oldMappings.get(i), this.newMappings.get(i), Collections.emptySet());
+        }
+    }
+
+    private static List<OldToNewCommentMapping> toMappings(Map<String, RepositoryComments> comments) {
+        final List<OldToNewCommentMapping> mappings = comments.keySet().stream()
+                .flatMap(file -> comments.get(file).getComments().stream()
+                        .map(comment -> new OldToNewCommentMapping(comment, file)))
+                .collect(Collectors.toList());
+        RepositoryDiffMiner.populateDuplicationIds(mappings);
+        return mappings;
+    }
+}
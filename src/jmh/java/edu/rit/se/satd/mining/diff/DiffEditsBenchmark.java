@@ -0,0 +1,98 @@
+package edu.rit.se.satd.mining.diff;
+
+import edu.rit.se.git.BenchmarkRepository;
+import edu.rit.se.git.GitUtil;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the time taken to compute the edits made to every java file in each commit of a
+ * generated repository, as the FileDifferencers request them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiffEditsBenchmark {
+
+    // A directory containing the java files to generate the repository from
+    @Param({"src/jmh/fixtures"})
+    public String sourceDirectory;
+
+    @Param({"50"})
+    public int nCommits;
+
+    @Param({"MYERS", "HISTOGRAM"})
+    public DiffAlgorithm.SupportedAlgorithm diffAlgorithm;
+
+    private BenchmarkRepository repository;
+    private MinerConfiguration config;
+
+    // The java files changed by each commit, and a new diff of each commit to compute their edits
+    private final List<List<DiffEntry>> entries = new ArrayList<>();
+    private final List<CommitToCommitDiff> diffs = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        this.repository = BenchmarkRepository.generate(new File(this.sourceDirectory), this.nCommits, 0);
+        this.config = MinerConfiguration.builder()
+                .diffAlgorithm(DiffAlgorithm.getAlgorithm(this.diffAlgorithm))
+                .build();
+        final List<RevCommit> commits = this.repository.getCommits();
+        for( int i = 1; i < commits.size(); i++ ) {
+            this.entries.add(GitUtil.getDiffEntries(this.repository.getGit(), commits.get(i - 1), commits.get(i))
+                    .stream()
+                    .filter(entry -> entry.getOldPath().endsWith(".java") || entry.getNewPath().endsWith(".java"))
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    // Each diff caches the edits it computes, so every invocation is given new diffs
+    @Setup(Level.Invocation)
+    public void createDiffs() {
+        this.diffs.clear();
+        final List<RevCommit> commits = this.repository.getCommits();
+        for( int i = 1; i < commits.size(); i++ ) {
+            this.diffs.add(new CommitToCommitDiff(this.repository.getReference(commits.get(i - 1)),
+                    this.repository.getReference(commits.get(i)), comment -> false, this.config));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        this.repository.close();
+    }
+
+    @Benchmark
+    public void computeEdits(Blackhole blackhole) {
+        for( int i = 0; i < this.diffs.size(); i++ ) {
+            for( final DiffEntry entry : this.entries.get(i) ) {
+                blackhole.consume(this.diffs.get(i).getEdits(entry));
+            }
+        }
+    }
+}
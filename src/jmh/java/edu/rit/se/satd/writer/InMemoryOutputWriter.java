@@ -0,0 +1,33 @@
+package edu.rit.se.satd.writer;
+
+import edu.rit.se.satd.model.SATDDifference;
+import lombok.Getter;
+
+/**
+ * An OutputWriter which only counts the diffs and SATD instances it is given, so the miner can
+ * be measured without the cost of a database.
+ * Diffs are not kept, so they do not add to the heap used by the miner.
+ */
+public class InMemoryOutputWriter implements OutputWriter {
+
+    @Getter
+    private int nDiffsWritten = 0;
+    @Getter
+    private long nInstancesWritten = 0;
+
+    @Override
+    public synchronized void writeDiff(SATDDifference diff) {
+        this.nDiffsWritten++;
+        this.nInstancesWritten += diff.getSatdInstances().size();
+    }
+
+    @Override
+    public void flush() {
+        // Every diff is written as soon as it is given to the writer
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+}
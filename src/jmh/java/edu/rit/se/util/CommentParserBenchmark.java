@@ -0,0 +1,114 @@
+package edu.rit.se.util;
+
+import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the time taken by each CommentParser to find the comments in a directory of java files.
+ *
+ * Before measuring, every file is parsed by both parsers, and the benchmark fails if any file's
+ * comments differ between the two. Files JavaParser rejects are left out, as the lexer may
+ * still find their comments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CommentParserBenchmark {
+
+    // A directory containing the java files to parse
+    @Param({"src/jmh/fixtures", "src/main/java"})
+    public String sourceDirectory;
+
+    @Param({"JAVAPARSER", "LEXER"})
+    public JavaParseUtil.CommentParser parser;
+
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+
+    private MinerConfiguration config;
+
+    @Setup
+    public void setUp() throws Exception {
+        for( final File file : FileUtils.listFiles(new File(this.sourceDirectory), new String[]{"java"}, true) ) {
+            this.files.put(file.getPath(), FileUtils.readFileToByteArray(file));
+        }
+        if( this.files.isEmpty() ) {
+            throw new IllegalStateException("No java files found in " + this.sourceDirectory);
+        }
+        final Iterator<Map.Entry<String, byte[]>> entries = this.files.entrySet().iterator();
+        while( entries.hasNext() ) {
+            final Map.Entry<String, byte[]> file = entries.next();
+            final List<String> javaParserComments;
+            try {
+                javaParserComments = describeComments(JavaParseUtil.CommentParser.JAVAPARSER, file);
+            } catch (KnownParserException e) {
+                entries.remove();
+                continue;
+            }
+            final List<String> lexerComments = describeComments(JavaParseUtil.CommentParser.LEXER, file);
+            if( !javaParserComments.equals(lexerComments) ) {
+                throw new IllegalStateException("Comment parsers disagree on " + file.getKey() +
+                        "\nJavaParser: " + javaParserComments + "\nLexer: " + lexerComments);
+            }
+        }
+        if( this.files.isEmpty() ) {
+            throw new IllegalStateException("No java files JavaParser can parse found in " + this.sourceDirectory);
+        }
+        this.config = MinerConfiguration.builder().commentParser(this.parser).build();
+    }
+
+    @Benchmark
+    public void parseFiles(Blackhole blackhole) throws Exception {
+        for( final Map.Entry<String, byte[]> file : this.files.entrySet() ) {
+            blackhole.consume(parse(file, this.config));
+        }
+    }
+
+    private static List<GroupedComment> parse(Map.Entry<String, byte[]> file, MinerConfiguration config)
+            throws KnownParserException, IOException {
+        return JavaParseUtil.parseFileForComments(
+                new ByteArrayInputStream(file.getValue()), file.getKey(), config);
+    }
+
+    private static List<String> describeComments(JavaParseUtil.CommentParser parser, Map.Entry<String, byte[]> file)
+            throws KnownParserException, IOException {
+        return parse(file, MinerConfiguration.builder().commentParser(parser).build()).stream()
+                .map(comment -> String.join("|",
+                        String.valueOf(comment.getStartLine()),
+                        String.valueOf(comment.getEndLine()),
+                        comment.getComment(),
+                        comment.getCommentType(),
+                        comment.getContainingClass(),
+                        String.valueOf(comment.getContainingClassDeclarationLineStart()),
+                        String.valueOf(comment.getContainingClassDeclarationLineEnd()),
+                        comment.getContainingMethod(),
+                        String.valueOf(comment.getContainingMethodDeclarationLineStart()),
+                        String.valueOf(comment.getContainingMethodDeclarationLineEnd())))
+                .collect(Collectors.toList());
+    }
+}
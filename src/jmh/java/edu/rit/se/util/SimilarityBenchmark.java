@@ -0,0 +1,128 @@
+package edu.rit.se.util;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time taken to decide if pairs of comments are similar by SimilarityUtil with the
+ * time taken when the full Levenshtein distance of every pair is computed.
+ *
+ * Half of the pairs are edits of the same comment, and half are unrelated comments. Before
+ * measuring, the benchmark fails if both approaches do not make the same decision for every pair.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimilarityBenchmark {
+
+    private static final String[] WORDS = {"TODO", "FIXME", "this", "is", "a", "hack", "should", "be",
+            "removed", "once", "the", "parser", "supports", "it", "workaround", "for", "bug", "in",
+            "method", "we", "need", "to", "handle", "null", "values", "here", "refactor", "later"};
+
+    private static final int N_PAIRS = 1000;
+
+    // The approximate length of each comment. Comments of up to 64 characters are compared
+    // with the bit-parallel distance, and longer ones with the bounded distance
+    @Param({"40", "200", "1000"})
+    public int commentLength;
+
+    @Param({"0.5"})
+    public double levenshteinDistanceMin;
+
+    private final List<String[]> pairs = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(this.commentLength);
+        for( int i = 0; i < N_PAIRS; i++ ) {
+            final String comment = randomComment(random, this.commentLength);
+            this.pairs.add(new String[]{comment, i % 2 == 0 ?
+                    editComment(random, comment) : randomComment(random, this.commentLength)});
+        }
+        for( final String[] pair : this.pairs ) {
+            if( fullDistanceSimilar(pair[0], pair[1], this.levenshteinDistanceMin) !=
+                    SimilarityUtil.stringsAreSimilar(pair[0], pair[1], this.levenshteinDistanceMin) ) {
+                throw new IllegalStateException("Similarity decisions differ for:\n" + pair[0] + "\n" + pair[1]);
+            }
+        }
+    }
+
+    @Benchmark
+    public void boundedDistance(Blackhole blackhole) {
+        for( final String[] pair : this.pairs ) {
+            blackhole.consume(SimilarityUtil.stringsAreSimilar(pair[0], pair[1], this.levenshteinDistanceMin));
+        }
+    }
+
+    @Benchmark
+    public void fullDistance(Blackhole blackhole) {
+        for( final String[] pair : this.pairs ) {
+            blackhole.consume(fullDistanceSimilar(pair[0], pair[1], this.levenshteinDistanceMin));
+        }
+    }
+
+    /**
+     * The similarity decision made by computing the full Levenshtein distance of the strings
+     */
+    private static boolean fullDistanceSimilar(String str1, String str2, double levenshteinDistanceMin) {
+        if( str1.isEmpty() && str2.isEmpty() ) {
+            return true;
+        }
+        if( str1.contains(str2) || str2.contains(str1) ) {
+            return true;
+        }
+        return levenshteinDistanceMin >= new LevenshteinDistance().apply(str1, str2) /
+                (double) Integer.max(str1.length(), str2.length());
+    }
+
+    private static String randomComment(Random random, int length) {
+        final StringBuilder comment = new StringBuilder();
+        while( comment.length() < length ) {
+            comment.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return comment.toString().trim();
+    }
+
+    /**
+     * @return the comment with a few of its words replaced, removed, or added to
+     */
+    private static String editComment(Random random, String comment) {
+        final List<String> words = new ArrayList<>();
+        for( final String word : comment.split(" ") ) {
+            words.add(word);
+        }
+        for( int i = 0; i < Math.max(1, words.size() / 5); i++ ) {
+            final int index = random.nextInt(words.size());
+            switch( random.nextInt(3) ) {
+                case 0:
+                    words.set(index, WORDS[random.nextInt(WORDS.length)]);
+                    break;
+                case 1:
+                    words.remove(index);
+                    break;
+                default:
+                    words.add(index, WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+        return String.join(" ", words);
+    }
+}
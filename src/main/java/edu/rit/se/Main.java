@@ -1,20 +1,36 @@
 package edu.rit.se;
 
+import edu.rit.se.git.GitUtil;
+import edu.rit.se.git.RepositoryInitializer;
 import edu.rit.se.satd.SATDMiner;
-import edu.rit.se.satd.comment.IgnorableWords;
+import edu.rit.se.satd.detector.CachingSATDDetector;
 import edu.rit.se.satd.detector.SATDDetectorImpl;
-import edu.rit.se.satd.mining.diff.CommitToCommitDiff;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import edu.rit.se.satd.writer.BulkLoadOutputWriter;
+import edu.rit.se.satd.writer.H2OutputWriter;
 import edu.rit.se.satd.writer.MySQLOutputWriter;
 import edu.rit.se.satd.writer.OutputWriter;
-import edu.rit.se.util.SimilarityUtil;
+import edu.rit.se.util.JavaParseUtil;
+import edu.rit.se.util.ParsedCommentCache;
 import org.apache.commons.cli.*;
 import org.eclipse.jgit.diff.DiffAlgorithm;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 public class Main {
@@ -27,6 +43,21 @@ public class Main {
     private static final String ARG_NAME_DIFF_ALGORITHM = "a";
     private static final String ARG_NAME_ERROR_OUTPUT = "e";
     private static final String ARG_NAME_NORMALIZED_LEVENSHTEIN_DISTANCE = "l";
+    private static final String ARG_NAME_THREADS = "t";
+    private static final String ARG_NAME_COMMENT_CACHE = "c";
+    private static final String ARG_NAME_SATD_CACHE = "s";
+    private static final String ARG_NAME_SATD_CACHE_SIZE = "y";
+    private static final String ARG_NAME_COMMENT_PARSER = "m";
+    private static final String ARG_NAME_WRITE_QUEUE = "q";
+    private static final String ARG_NAME_WRITER_THREADS = "w";
+    private static final String ARG_NAME_PARALLEL_REPOS = "n";
+    private static final String ARG_NAME_STATE_DIR = "k";
+    private static final String ARG_NAME_CHECKPOINT_INTERVAL = "x";
+    private static final String ARG_NAME_MIRROR_DIR = "b";
+    private static final String ARG_NAME_JGIT_PROPS = "j";
+    private static final String ARG_NAME_METRICS_DIR = "o";
+    private static final String ARG_NAME_BULK_DIR = "f";
+    private static final String ARG_NAME_EMBEDDED_DB = "g";
     private static final String PROJECT_NAME_CLI = "satd-analyzer";
 
     public static void main(String[] args) throws Exception {
@@ -44,26 +75,32 @@ public class Main {
             // Parse from command line
             CommandLineParser parser = new DefaultParser();
             CommandLine cmd = parser.parse(options, args);
+            // The database server is only written to if the output is not bulk loaded later
+            // or written to an embedded database
+            if( !cmd.hasOption(ARG_NAME_DB_PROPS) && !cmd.hasOption(ARG_NAME_BULK_DIR) &&
+                    !cmd.hasOption(ARG_NAME_EMBEDDED_DB) ) {
+                throw new MissingOptionException(Collections.singletonList(ARG_NAME_DB_PROPS));
+            }
 
             final String reposFile = cmd.getOptionValue(ARG_NAME_REPOS_FILE);
-            final String dbPropsFile = cmd.getOptionValue(ARG_NAME_DB_PROPS);
+
+            // Settings shared by every repository mined in this run
+            final MinerConfiguration.MinerConfigurationBuilder configBuilder = MinerConfiguration.builder();
 
             if( cmd.hasOption(ARG_NAME_IGNORE_WORDS) ) {
-                populateIgnoredWordsFile(cmd.getOptionValue(ARG_NAME_IGNORE_WORDS));
-            } else {
-                IgnorableWords.noIgnorableWords();
+                configBuilder.ignorableWords(readIgnoredWordsFile(cmd.getOptionValue(ARG_NAME_IGNORE_WORDS)));
             }
 
             if( cmd.hasOption(ARG_NAME_DIFF_ALGORITHM) ) {
                 final String algoName = cmd.getOptionValue(ARG_NAME_DIFF_ALGORITHM).toUpperCase();
                 switch (algoName) {
                     case "MYERS":
-                        CommitToCommitDiff.diffAlgo = DiffAlgorithm.getAlgorithm(
-                                DiffAlgorithm.SupportedAlgorithm.MYERS);
+                        configBuilder.diffAlgorithm(DiffAlgorithm.getAlgorithm(
+                                DiffAlgorithm.SupportedAlgorithm.MYERS));
                         break;
                     case "HISTOGRAM":
-                        CommitToCommitDiff.diffAlgo = DiffAlgorithm.getAlgorithm(
-                                DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+                        configBuilder.diffAlgorithm(DiffAlgorithm.getAlgorithm(
+                                DiffAlgorithm.SupportedAlgorithm.HISTOGRAM));
                         break;
                     default:
                         System.err.println("Invalid diff algorithm supplied: " + algoName +
@@ -71,50 +108,185 @@ public class Main {
                 }
             }
 
-            if( !cmd.hasOption(ARG_NAME_ERROR_OUTPUT) ) {
-                SATDMiner.disableErrorOutput();
+            if( cmd.hasOption(ARG_NAME_COMMENT_PARSER) ) {
+                final String parserName = cmd.getOptionValue(ARG_NAME_COMMENT_PARSER).toUpperCase();
+                switch (parserName) {
+                    case "JAVAPARSER":
+                        configBuilder.commentParser(JavaParseUtil.CommentParser.JAVAPARSER);
+                        break;
+                    case "LEXER":
+                        configBuilder.commentParser(JavaParseUtil.CommentParser.LEXER);
+                        break;
+                    default:
+                        System.err.println("Invalid comment parser supplied: " + parserName +
+                                "\nDefaulted to using JavaParser.");
+                }
             }
 
-            SimilarityUtil.setLevenshteinDistanceMin(
+            configBuilder.errorOutputEnabled(cmd.hasOption(ARG_NAME_ERROR_OUTPUT));
+
+            configBuilder.levenshteinDistanceMin(
                     Double.parseDouble(
                             cmd.getOptionValue(
                                     ARG_NAME_NORMALIZED_LEVENSHTEIN_DISTANCE, "0.5")));
 
-            // Read the supplied repos from the file
-            final File inFile = new File(reposFile);
-            final Scanner inFileReader = new Scanner(inFile);
-
-            // Find the SATD in each supplied repository
-            while (inFileReader.hasNext()) {
-
-                final String[] repoEntry = inFileReader.next().split(",");
+            final MinerConfiguration config = configBuilder.build();
 
-                if( repoEntry.length > 0 ) {
+            if( cmd.hasOption(ARG_NAME_COMMENT_CACHE) ) {
+                ParsedCommentCache.setMaxBytes(
+                        Long.parseLong(cmd.getOptionValue(ARG_NAME_COMMENT_CACHE)) * 1024 * 1024);
+            }
 
-                    final SATDMiner miner = new SATDMiner(repoEntry[0], new SATDDetectorImpl());
+            if( cmd.hasOption(ARG_NAME_JGIT_PROPS) ) {
+                final Properties jgitProperties = new Properties();
+                try (FileInputStream in = new FileInputStream(cmd.getOptionValue(ARG_NAME_JGIT_PROPS))) {
+                    jgitProperties.load(in);
+                }
+                RepositoryInitializer.configureObjectCache(jgitProperties);
+            }
 
-                    final String headCommit = repoEntry.length > 1 ? repoEntry[1] : null;
+            MinerMetrics.setEnabled(cmd.hasOption(ARG_NAME_METRICS_DIR));
 
-                    // Set username and password if supplied
-                    if (cmd.hasOption(ARG_NAME_GH_USERNAME)) {
-                        miner.setGithubUsername(cmd.getOptionValue(ARG_NAME_GH_USERNAME));
-                    }
-                    if (cmd.hasOption(ARG_NAME_GH_PASSWORD)) {
-                        miner.setGithubPassword(cmd.getOptionValue(ARG_NAME_GH_PASSWORD));
-                    }
+            // Classifications are shared by every repository mined in this run
+            final int satdCacheSize = cmd.hasOption(ARG_NAME_SATD_CACHE_SIZE) ?
+                    Integer.parseInt(cmd.getOptionValue(ARG_NAME_SATD_CACHE_SIZE)) :
+                    CachingSATDDetector.DEFAULT_MAX_ENTRIES;
+            final CachingSATDDetector detector = cmd.hasOption(ARG_NAME_SATD_CACHE) ?
+                    new CachingSATDDetector(new SATDDetectorImpl(),
+                            new File(cmd.getOptionValue(ARG_NAME_SATD_CACHE)), satdCacheSize) :
+                    new CachingSATDDetector(new SATDDetectorImpl(), satdCacheSize);
 
-                    OutputWriter writer = new MySQLOutputWriter(dbPropsFile);
-                    miner.writeRepoSATD(miner.getBaseCommit(headCommit), writer);
+            // Read the supplied repos from the file
+            final List<String[]> repoEntries = new ArrayList<>();
+            final Scanner inFileReader = new Scanner(new File(reposFile));
+            while (inFileReader.hasNext()) {
+                final String[] repoEntry = inFileReader.next().split(",");
+                if( repoEntry.length > 0 ) {
+                    repoEntries.add(repoEntry);
+                }
+            }
+            inFileReader.close();
 
-                    writer.close();
-                    miner.cleanRepo();
+            final int nParallelRepos = Integer.parseInt(cmd.getOptionValue(ARG_NAME_PARALLEL_REPOS, "1"));
+            if( nParallelRepos > 1 ) {
+                mineRepositoriesInParallel(repoEntries, nParallelRepos, cmd, config, detector);
+            } else {
+                // Find the SATD in each supplied repository
+                for( final String[] repoEntry : repoEntries ) {
+                    mineRepository(repoEntry, cmd, config, detector, true);
                 }
             }
+            System.out.println(ParsedCommentCache.getInstance());
+            System.out.println(detector);
+            if( cmd.hasOption(ARG_NAME_METRICS_DIR) ) {
+                MinerMetrics.write(new File(cmd.getOptionValue(ARG_NAME_METRICS_DIR)));
+            }
         } catch (ParseException e) {
             System.err.println(e.getLocalizedMessage());
         }
     }
 
+    /**
+     * Mines the SATD in a repository and writes it to the database
+     * @param repoEntry the repository's URI, optionally followed by the commit to begin mining from
+     * @param cmd the parsed command line options
+     * @param config the configuration shared by every repository mined in this run
+     * @param detector the detector shared by every repository mined in this run
+     * @param showStatus True if the miner's progress should be output as it mines
+     * @throws IOException thrown if the database properties, the bulk load files or the SATD cache could not be used
+     */
+    private static void mineRepository(String[] repoEntry, CommandLine cmd, MinerConfiguration config,
+                                       CachingSATDDetector detector, boolean showStatus) throws IOException {
+        final SATDMiner miner = new SATDMiner(repoEntry[0], detector, config);
+
+        final String headCommit = repoEntry.length > 1 ? repoEntry[1] : null;
+
+        if (!showStatus) {
+            miner.disableStatusOutput();
+        }
+        if (cmd.hasOption(ARG_NAME_THREADS)) {
+            miner.setNThreads(Integer.parseInt(cmd.getOptionValue(ARG_NAME_THREADS)));
+        }
+        if (cmd.hasOption(ARG_NAME_WRITE_QUEUE)) {
+            miner.setWriteQueueDepth(Integer.parseInt(cmd.getOptionValue(ARG_NAME_WRITE_QUEUE)));
+        }
+        if (cmd.hasOption(ARG_NAME_WRITER_THREADS)) {
+            miner.setNWriterThreads(Integer.parseInt(cmd.getOptionValue(ARG_NAME_WRITER_THREADS)));
+        }
+
+        if (cmd.hasOption(ARG_NAME_STATE_DIR)) {
+            final File stateDir = new File(cmd.getOptionValue(ARG_NAME_STATE_DIR));
+            stateDir.mkdirs();
+            miner.setStateFile(new File(stateDir,
+                    GitUtil.getRepoNameFromURI(repoEntry[0]).replace("/", "_") + ".state"));
+            miner.setCheckpointInterval(Integer.parseInt(cmd.getOptionValue(ARG_NAME_CHECKPOINT_INTERVAL, "1000")));
+        }
+
+        if (cmd.hasOption(ARG_NAME_MIRROR_DIR)) {
+            miner.setMirrorDir(new File(cmd.getOptionValue(ARG_NAME_MIRROR_DIR)));
+        }
+
+        // Set username and password if supplied
+        if (cmd.hasOption(ARG_NAME_GH_USERNAME)) {
+            miner.setGithubUsername(cmd.getOptionValue(ARG_NAME_GH_USERNAME));
+        }
+        if (cmd.hasOption(ARG_NAME_GH_PASSWORD)) {
+            miner.setGithubPassword(cmd.getOptionValue(ARG_NAME_GH_PASSWORD));
+        }
+
+        final OutputWriter writer;
+        if( cmd.hasOption(ARG_NAME_BULK_DIR) ) {
+            writer = new BulkLoadOutputWriter(new File(cmd.getOptionValue(ARG_NAME_BULK_DIR),
+                    GitUtil.getRepoNameFromURI(repoEntry[0]).replace("/", "_")));
+        } else if( cmd.hasOption(ARG_NAME_EMBEDDED_DB) ) {
+            writer = new H2OutputWriter(new File(cmd.getOptionValue(ARG_NAME_EMBEDDED_DB)));
+        } else {
+            writer = new MySQLOutputWriter(cmd.getOptionValue(ARG_NAME_DB_PROPS));
+        }
+        try {
+            miner.writeRepoSATD(miner.getBaseCommit(headCommit), writer);
+        } finally {
+            // Released even if mining fails, as other repositories may still be mined in this run
+            writer.close();
+            miner.cleanRepo();
+            detector.flush();
+        }
+    }
+
+    /**
+     * Mines several repositories at once. Each repository is mined on a single thread of a
+     * fixed pool, so a repository that is slow to clone or mine only holds up its own thread.
+     * @param repoEntries the repositories to mine, in the order they should be started
+     * @param nParallelRepos the number of repositories to mine at once
+     * @param cmd the parsed command line options
+     * @param config the configuration shared by every repository mined in this run
+     * @param detector the detector shared by every repository mined in this run
+     * @throws InterruptedException thrown if interrupted while waiting for the repositories to be mined
+     */
+    private static void mineRepositoriesInParallel(List<String[]> repoEntries, int nParallelRepos,
+                                                   CommandLine cmd, MinerConfiguration config,
+                                                   CachingSATDDetector detector) throws InterruptedException {
+        final ExecutorService repoPool = Executors.newFixedThreadPool(nParallelRepos);
+        final List<Future<?>> minedRepos = new ArrayList<>();
+        for( final String[] repoEntry : repoEntries ) {
+            // Progress output of several repositories would overwrite itself, so only the
+            // result of each repository is output
+            minedRepos.add(repoPool.submit(() -> {
+                mineRepository(repoEntry, cmd, config, detector, false);
+                return null;
+            }));
+        }
+        repoPool.shutdown();
+        for( int i = 0; i < minedRepos.size(); i++ ) {
+            try {
+                minedRepos.get(i).get();
+            } catch (ExecutionException e) {
+                // A failure in one repository should not stop the others from being mined
+                System.err.println("Error mining " + repoEntries.get(i)[0] + ": " + e.getCause());
+            }
+        }
+    }
+
     /**
      * @return the options for the CLI
      */
@@ -126,14 +298,14 @@ public class Main {
                         .hasArg()
                         .argName("FILE")
                         .desc(".properties file containing database properties")
-                        .required()
                         .build())
                 .addOption(Option.builder(ARG_NAME_REPOS_FILE)
                         .longOpt("repos")
                         .hasArg()
                         .argName("FILE")
                         .desc(".csv file containing git repositories" +
-                                "\n<repository-REQUIRED>,<terminal_commit-OPTIONAL>")
+                                "\n<repository-REQUIRED>,<terminal_commit-OPTIONAL>\n" +
+                                "Local paths and file:// URIs are mined in place")
                         .required()
                         .build())
                 .addOption(Option.builder(ARG_NAME_GH_USERNAME)
@@ -163,6 +335,14 @@ public class Main {
                                 "- MYERS (default)\n" +
                                 "- HISTOGRAM")
                         .build())
+                .addOption(Option.builder(ARG_NAME_COMMENT_PARSER)
+                        .longOpt("comment-parser")
+                        .hasArg()
+                        .argName("PARSER")
+                        .desc("the parser to use for finding comments in java files: \n" +
+                                "- JAVAPARSER (default)\n" +
+                                "- LEXER (faster, uses JavaParser for any file it cannot lex)")
+                        .build())
                 .addOption(Option.builder(ARG_NAME_ERROR_OUTPUT)
                         .longOpt("show-errors")
                         .desc("shows errors in output")
@@ -174,6 +354,111 @@ public class Main {
                         .argName("0.0-1.0")
                         .desc("the normalized levenshtein distance threshold which determines what similarity " +
                                 "must be met to qualify SATD instances as changed")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_THREADS)
+                        .longOpt("threads")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the number of diffs to mine in parallel for each repository (default 1)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_PARALLEL_REPOS)
+                        .longOpt("parallel-repos")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the number of repositories to mine at once (default 1). " +
+                                "Progress is only shown when 1")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_WRITE_QUEUE)
+                        .longOpt("write-queue")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the number of mined diffs which may wait to be written before mining " +
+                                "is paused (default 16)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_WRITER_THREADS)
+                        .longOpt("writer-threads")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the number of threads writing mined diffs to the database (default 1)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_COMMENT_CACHE)
+                        .longOpt("comment-cache")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("MB")
+                        .desc("the maximum size of the cache of parsed comments in megabytes " +
+                                "(default 128, 0 disables caching)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_JGIT_PROPS)
+                        .longOpt("jgit-props")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc(".properties file configuring the cache JGit reads repository objects " +
+                                "through")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_MIRROR_DIR)
+                        .longOpt("mirror-dir")
+                        .hasArg()
+                        .argName("DIR")
+                        .desc("a directory in which bare mirrors of remote repositories are kept " +
+                                "between runs, so only new objects are fetched")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_STATE_DIR)
+                        .longOpt("state-dir")
+                        .hasArg()
+                        .argName("DIR")
+                        .desc("a directory in which the state of each mined repository is stored. " +
+                                "Only the commits made since a repository was last mined are mined again")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_CHECKPOINT_INTERVAL)
+                        .longOpt("checkpoint-interval")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the number of diffs mined between checkpoints of a repository's state " +
+                                "in the state directory, from which an interrupted run resumes " +
+                                "(default 1000, 0 disables checkpoints)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_SATD_CACHE)
+                        .longOpt("satd-cache")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("a file in which SATD classifications are stored so they can be reused " +
+                                "between runs. Should be deleted if the SATD detection model changes")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_SATD_CACHE_SIZE)
+                        .longOpt("satd-cache-size")
+                        .hasArg()
+                        .type(Number.class)
+                        .argName("N")
+                        .desc("the most SATD classifications to keep in memory (default 500000, " +
+                                "0 disables caching)")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_BULK_DIR)
+                        .longOpt("bulk-dir")
+                        .hasArg()
+                        .argName("DIR")
+                        .desc("a directory to which mined SATD is written as files which can be bulk " +
+                                "loaded into the database, rather than writing to the database")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_EMBEDDED_DB)
+                        .longOpt("embedded-db")
+                        .hasArg()
+                        .argName("FILE")
+                        .desc("an embedded H2 database file to which mined SATD is written, rather " +
+                                "than writing to a database server")
+                        .build())
+                .addOption(Option.builder(ARG_NAME_METRICS_DIR)
+                        .longOpt("metrics-dir")
+                        .hasArg()
+                        .argName("DIR")
+                        .desc("a directory to which the time spent in each stage of mining each " +
+                                "repository is written once every repository is mined, as " +
+                                MinerMetrics.PROMETHEUS_FILE_NAME + " and " + MinerMetrics.JSON_FILE_NAME)
                         .build());
     }
 
@@ -206,14 +491,14 @@ public class Main {
         return false;
     }
 
-    private static void populateIgnoredWordsFile(String fileName) throws Exception {
+    private static Set<String> readIgnoredWordsFile(String fileName) throws Exception {
         final File f = new File(fileName);
         final Scanner r = new Scanner(f);
         final Set<String> words = new HashSet<>();
         while (r.hasNextLine()) {
             words.addAll(Arrays.asList(r.next().trim().split(" ")));
         }
-        IgnorableWords.populateIgnorableWords(words);
         r.close();
+        return words;
     }
 }
@@ -3,6 +3,8 @@ package edu.rit.se.git;
 
 import edu.rit.se.satd.comment.model.RepositoryComments;
 import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import org.eclipse.jgit.lib.ObjectId;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -43,7 +45,7 @@ public class DevNullCommitReference extends RepositoryCommitReference {
 
     @Override
     public Map<String, RepositoryComments> getFilesToSATDOccurrences(
-            SATDDetector detector, List<String> filesToSearch) {
+            SATDDetector detector, Map<String, ObjectId> filesToSearch, MinerConfiguration config) {
         return new HashMap<>();
     }
 
@@ -2,6 +2,8 @@ package edu.rit.se.git;
 
 import com.github.javaparser.Position;
 import com.github.javaparser.Range;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
 import edu.rit.se.util.JavaParseUtil;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
@@ -25,12 +27,21 @@ import java.util.List;
 public class GitUtil {
 
     /**
-     * Parses a repository name from a GitHub URI
-     * @param githubURI the Github URI, like "https://github.com/bbchristians/SATDMiner"
-     * @return a parsed URI, like "bbchristians/SATDMiner"
+     * Parses a repository name from a GitHub URI, or from any other URI or local path
+     * @param uri the URI, like "https://github.com/bbchristians/SATDMiner" or
+     *            "/home/user/repos/SATDMiner"
+     * @return a parsed URI, like "bbchristians/SATDMiner", or the last two segments of any
+     * other URI or path, like "repos/SATDMiner"
      */
-    public static String getRepoNameFromGithubURI(String githubURI) {
-        return githubURI.split(".com/")[1].replace(".git", "");
+    public static String getRepoNameFromURI(String uri) {
+        if( uri.contains(".com/") ) {
+            return uri.split(".com/")[1].replace(".git", "");
+        }
+        final String[] segments = uri.replaceAll("[/\\\\]+$", "").replaceAll("\\.git$", "")
+                .split("[/\\\\:]+");
+        return segments.length > 1 ?
+                String.join("/", segments[segments.length - 2], segments[segments.length - 1]) :
+                segments[segments.length - 1];
     }
 
     /**
@@ -75,9 +86,13 @@ public class GitUtil {
             }
 
             final RenameDetector rd = new RenameDetector(gitInstance.getRepository());
-            rd.addAll(DiffEntry.scan(tw));
+            try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.DIFF_ENTRIES) ) {
+                rd.addAll(DiffEntry.scan(tw));
+            }
 
-            return rd.compute(tw.getObjectReader(), null);
+            try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.RENAME_DETECTION) ) {
+                return rd.compute(tw.getObjectReader(), null);
+            }
         } catch (IOException e) {
             System.err.println("\nError diffing trees.");
         }
@@ -0,0 +1,119 @@
+package edu.rit.se.git;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * The edits made to a single file, indexed so that the edits touching a range of lines
+ * can be found without checking every edit in the file
+ */
+public class IndexedEditList {
+
+    private final List<Edit> edits;
+    // JGit produces edits that are sorted and disjoint in both files. If this ever does
+    // not hold, lookups fall back to checking every edit.
+    private final boolean sortedInOldFile;
+    private final boolean sortedInNewFile;
+
+    public IndexedEditList(EditList edits) {
+        this.edits = Collections.unmodifiableList(new ArrayList<>(edits));
+        this.sortedInOldFile = isSorted(this.edits, Edit::getBeginA, Edit::getEndA);
+        this.sortedInNewFile = isSorted(this.edits, Edit::getBeginB, Edit::getEndB);
+    }
+
+    public List<Edit> getEdits() {
+        return this.edits;
+    }
+
+    /**
+     * @param startLine the start line bound
+     * @param endLine the end line bound
+     * @return every edit which touches any lines between the bounds (inclusive) in the old file
+     * @see GitUtil#editOccursInOldFileBetween(Edit, int, int)
+     */
+    public List<Edit> editsInOldFileBetween(int startLine, int endLine) {
+        final List<Edit> found = new ArrayList<>();
+        for( int i = this.firstCandidate(startLine, Edit::getEndA, this.sortedInOldFile);
+             i < this.edits.size(); i++ ) {
+            final Edit edit = this.edits.get(i);
+            if( this.sortedInOldFile && edit.getBeginA() > endLine ) {
+                break;
+            }
+            if( GitUtil.editOccursInOldFileBetween(edit, startLine, endLine) ) {
+                found.add(edit);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param startLine the start line bound
+     * @param endLine the end line bound
+     * @return every edit which touches any lines between the bounds (inclusive) in the new file
+     * @see GitUtil#editOccursInNewFileBetween(Edit, int, int)
+     */
+    public List<Edit> editsInNewFileBetween(int startLine, int endLine) {
+        final List<Edit> found = new ArrayList<>();
+        for( int i = this.firstCandidate(startLine, Edit::getEndB, this.sortedInNewFile);
+             i < this.edits.size(); i++ ) {
+            final Edit edit = this.edits.get(i);
+            if( this.sortedInNewFile && edit.getBeginB() > endLine ) {
+                break;
+            }
+            if( GitUtil.editOccursInNewFileBetween(edit, startLine, endLine) ) {
+                found.add(edit);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return True if any edit touches any lines between the bounds (inclusive) in the old file
+     */
+    public boolean anyEditInOldFileBetween(int startLine, int endLine) {
+        return !this.editsInOldFileBetween(startLine, endLine).isEmpty();
+    }
+
+    /**
+     * @return True if any edit touches any lines between the bounds (inclusive) in the new file
+     */
+    public boolean anyEditInNewFileBetween(int startLine, int endLine) {
+        return !this.editsInNewFileBetween(startLine, endLine).isEmpty();
+    }
+
+    /**
+     * Binary searches for the first edit which does not end before the start line
+     * @return the index of the first edit that could touch the start line
+     */
+    private int firstCandidate(int startLine, ToIntFunction<Edit> getEnd, boolean sorted) {
+        if( !sorted ) {
+            return 0;
+        }
+        int low = 0;
+        int high = this.edits.size();
+        while( low < high ) {
+            final int mid = (low + high) >>> 1;
+            if( getEnd.applyAsInt(this.edits.get(mid)) < startLine ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isSorted(List<Edit> edits, ToIntFunction<Edit> getBegin, ToIntFunction<Edit> getEnd) {
+        for( int i = 1; i < edits.size(); i++ ) {
+            if( getBegin.applyAsInt(edits.get(i)) < getBegin.applyAsInt(edits.get(i - 1)) ||
+                    getEnd.applyAsInt(edits.get(i)) < getEnd.applyAsInt(edits.get(i - 1)) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
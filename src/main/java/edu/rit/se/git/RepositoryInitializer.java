@@ -2,19 +2,30 @@ package edu.rit.se.git;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheStats;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
 
 /**
  * Initializes a Git Repository. This includes cloning it locally and
  * locating unknown commits within it.
+ *
+ * Mining only reads objects, so repositories are cloned without a working tree. Repositories
+ * on the local filesystem are mined in place, and remote repositories may be kept as mirrors
+ * between runs so that only new objects are fetched.
  */
 public class RepositoryInitializer {
 
@@ -27,6 +38,19 @@ public class RepositoryInitializer {
 
     // Program constants
     private static final String REPO_OUT_DIR = "repos";
+    private static final String MIRROR_SUFFIX = ".git";
+    private static final String FILE_URI_SCHEME = "file:";
+
+    // Object cache properties
+    private static final String PROP_PACKED_GIT_LIMIT = "PACKED_GIT_LIMIT";
+    private static final String PROP_PACKED_GIT_WINDOW_SIZE = "PACKED_GIT_WINDOW_SIZE";
+    private static final String PROP_PACKED_GIT_OPEN_FILES = "PACKED_GIT_OPEN_FILES";
+    private static final String PROP_PACKED_GIT_MMAP = "PACKED_GIT_MMAP";
+    private static final String PROP_DELTA_BASE_CACHE_LIMIT = "DELTA_BASE_CACHE_LIMIT";
+    private static final String PROP_STREAM_FILE_THRESHOLD = "STREAM_FILE_THRESHOLD";
+
+    // The object cache shared by every repository in this process
+    private static WindowCacheConfig objectCacheConfig = new WindowCacheConfig();
 
     // Constructor fields
     @Getter
@@ -34,62 +58,215 @@ public class RepositoryInitializer {
     private String repoDir;
     @NonNull
     private String gitURI;
+    @NonNull
+    private String baseName;
 
     @NonNull
     private String gitUsername = GIT_USERNAME;
     @NonNull
     private String gitPassword = GIT_PASSWORD;
 
+    // A directory in which mirrors of remote repositories are kept between runs. If null,
+    // remote repositories are cloned to a temporary directory which is deleted by cleanRepo
+    @Setter
+    private File mirrorDir = null;
+
     // Set after initialization
     private Git repoRef = null;
 
+    // True if the repository was cloned only for this run, and so should be deleted by cleanRepo
+    @Getter
+    private boolean temporaryClone = false;
+
     // Prevents other functionality of the class from being used if the git init fails
     private Boolean gitDidInit = false;
 
     public RepositoryInitializer(String uri, String baseName) {
         this.repoDir = String.join(File.separator, REPO_OUT_DIR, baseName);
         this.gitURI = uri;
+        this.baseName = baseName;
     }
 
     public RepositoryInitializer(String uri, String baseName, String gitUsername, String gitPassword) {
         this.repoDir = String.join(File.separator, REPO_OUT_DIR, baseName);
         this.gitURI = uri;
+        this.baseName = baseName;
         this.gitUsername = gitUsername;
         this.gitPassword = gitPassword;
     }
 
     /**
-     * Initializes the repository, which:
-     * 1. Clones the repository locally (Don't forget to clean it up)
-     * 2. Sets the remote reference for the repository
+     * Initializes the repository, which is one of:
+     * 1. Opening the repository in place if it is on the local filesystem
+     * 2. Fetching new objects into its mirror, or cloning the mirror if it does not exist
+     * 3. Cloning the repository locally without a working tree (Don't forget to clean it up)
      * @return True if the initialization was successful, else False
      */
     public boolean initRepo() {
-        final File newGitRepo = new File(this.repoDir);
-        if( newGitRepo.exists() ) {
-            this.cleanRepo();
-        }
-        newGitRepo.mkdirs();
         try {
-            // Clone an instance of the repository locally
-            this.repoRef = Git.cloneRepository()
-                    .setCredentialsProvider(new UsernamePasswordCredentialsProvider(this.gitUsername, this.gitPassword))
-                    .setURI(this.gitURI)
-                    .setDirectory(newGitRepo)
-                    .setCloneAllBranches(false)
-                    .call();
-            // Add a remote instance to the repository (to be used for tag listing)
-            this.repoRef.getRepository().getConfig().setString(REMOTE, ORIGIN, URL, this.gitURI);
-            this.repoRef.getRepository().getConfig().save();
+            final File localRepo = getLocalRepositoryDir(this.gitURI);
+            if( localRepo != null ) {
+                this.repoRef = Git.open(localRepo);
+                this.repoDir = localRepo.getPath();
+            } else if( this.mirrorDir != null ) {
+                this.repoRef = this.openMirror();
+            } else {
+                final File newGitRepo = new File(this.repoDir);
+                if( newGitRepo.exists() ) {
+                    FileUtils.deleteDirectory(newGitRepo);
+                }
+                newGitRepo.mkdirs();
+                this.temporaryClone = true;
+                // Clone an instance of the repository locally
+                this.repoRef = this.cloneBare(newGitRepo);
+                // Add a remote instance to the repository (to be used for tag listing)
+                this.repoRef.getRepository().getConfig().setString(REMOTE, ORIGIN, URL, this.gitURI);
+                this.repoRef.getRepository().getConfig().save();
+            }
             this.gitDidInit = true;
         } catch (GitAPIException e) {
             System.err.println("\nGit API error in git init: " + e.getLocalizedMessage());
         } catch (IOException e) {
-            System.err.println("\nIOException when setting remote in gew repo.");
+            System.err.println("\nIOException when opening the repository: " + e.getLocalizedMessage());
         }
         return this.gitDidInit;
     }
 
+    /**
+     * Opens the mirror of the repository, fetching any new objects into it. A mirror which
+     * does not exist yet is cloned to a temporary directory first, so an interrupted clone is
+     * never mistaken for a mirror.
+     * @return the mirror of the repository
+     */
+    private Git openMirror() throws GitAPIException, IOException {
+        final File mirror = new File(this.mirrorDir, this.baseName + MIRROR_SUFFIX);
+        this.repoDir = mirror.getPath();
+        if( mirror.exists() ) {
+            final Git mirrorRef = Git.open(mirror);
+            try {
+                mirrorRef.fetch()
+                        .setCredentialsProvider(new UsernamePasswordCredentialsProvider(this.gitUsername, this.gitPassword))
+                        .setRemoveDeletedRefs(true)
+                        .call();
+            } catch (GitAPIException e) {
+                System.err.println("\nGit API error in git fetch, mining the mirror as last fetched: " +
+                        e.getLocalizedMessage());
+            }
+            return mirrorRef;
+        }
+        final File tempMirror = new File(mirror.getPath() + ".tmp");
+        FileUtils.deleteDirectory(tempMirror);
+        tempMirror.mkdirs();
+        this.cloneBare(tempMirror).close();
+        Files.move(tempMirror.toPath(), mirror.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return Git.open(mirror);
+    }
+
+    private Git cloneBare(File directory) throws GitAPIException {
+        return Git.cloneRepository()
+                .setCredentialsProvider(new UsernamePasswordCredentialsProvider(this.gitUsername, this.gitPassword))
+                .setURI(this.gitURI)
+                .setDirectory(directory)
+                .setBare(true)
+                .setCloneAllBranches(false)
+                .call();
+    }
+
+    /**
+     * @param uri the URI of a repository
+     * @return the directory of the repository if the URI is a path or file URI of an
+     * existing directory, else null
+     */
+    private static File getLocalRepositoryDir(String uri) {
+        try {
+            final File dir = uri.startsWith(FILE_URI_SCHEME) ? new File(URI.create(uri)) : new File(uri);
+            return dir.isDirectory() ? dir : null;
+        } catch (IllegalArgumentException e) {
+            // Not a URI of the local filesystem, such as one naming a host
+            return null;
+        }
+    }
+
+    /**
+     * Configures the cache JGit uses to read objects from pack files. The cache is shared by every
+     * repository in this process, so should be configured before any repository is initialized.
+     * Properties which are not supplied keep JGit's defaults. Sizes are given as:
+     * PACKED_GIT_LIMIT, DELTA_BASE_CACHE_LIMIT and STREAM_FILE_THRESHOLD in megabytes,
+     * and PACKED_GIT_WINDOW_SIZE in kilobytes.
+     * @param properties the properties to configure the cache with
+     * @throws IllegalArgumentException thrown if the configuration is not valid
+     */
+    public static synchronized void configureObjectCache(Properties properties) {
+        final WindowCacheConfig config = new WindowCacheConfig();
+        if( properties.containsKey(PROP_PACKED_GIT_LIMIT) ) {
+            config.setPackedGitLimit(
+                    Long.parseLong(properties.getProperty(PROP_PACKED_GIT_LIMIT).trim()) * WindowCacheConfig.MB);
+        }
+        if( properties.containsKey(PROP_PACKED_GIT_WINDOW_SIZE) ) {
+            config.setPackedGitWindowSize(
+                    Integer.parseInt(properties.getProperty(PROP_PACKED_GIT_WINDOW_SIZE).trim()) * WindowCacheConfig.KB);
+        }
+        if( properties.containsKey(PROP_PACKED_GIT_OPEN_FILES) ) {
+            config.setPackedGitOpenFiles(
+                    Integer.parseInt(properties.getProperty(PROP_PACKED_GIT_OPEN_FILES).trim()));
+        }
+        if( properties.containsKey(PROP_PACKED_GIT_MMAP) ) {
+            config.setPackedGitMMAP(Boolean.parseBoolean(properties.getProperty(PROP_PACKED_GIT_MMAP).trim()));
+        }
+        if( properties.containsKey(PROP_DELTA_BASE_CACHE_LIMIT) ) {
+            config.setDeltaBaseCacheLimit(
+                    Integer.parseInt(properties.getProperty(PROP_DELTA_BASE_CACHE_LIMIT).trim()) * WindowCacheConfig.MB);
+        }
+        if( properties.containsKey(PROP_STREAM_FILE_THRESHOLD) ) {
+            config.setStreamFileThreshold(
+                    Integer.parseInt(properties.getProperty(PROP_STREAM_FILE_THRESHOLD).trim()) * WindowCacheConfig.MB);
+        }
+        config.install();
+        objectCacheConfig = config;
+    }
+
+    /**
+     * Describes the objects stored in the repository and how much of them JGit's object cache
+     * holds. JGit does not count cache hits, so a cache which is full while the repository's
+     * packs are larger than it is the sign that objects are being read from disk repeatedly.
+     * Must be called before the repository is cleaned, as closing it empties the cache of its packs.
+     * @return a one line report, or null if the repository could not be inspected
+     */
+    public String getObjectStoreReport() {
+        if( !this.gitDidInit ) {
+            return null;
+        }
+        final Properties stats;
+        try {
+            stats = this.repoRef.gc().getStatistics();
+        } catch (GitAPIException e) {
+            return null;
+        }
+        final long packedBytes = getStatistic(stats, "sizeOfPackedObjects");
+        final long nPackFiles = getStatistic(stats, "numberOfPackFiles");
+        final long cachedBytes = WindowCacheStats.getOpenBytes();
+        final long cacheLimit = objectCacheConfig.getPackedGitLimit();
+        return String.format("Object store: %,d packed objects (%.1fMB in %d pack%s), %,d loose objects; " +
+                        "JGit cache holding %.1fMB of %.1fMB in %d open pack%s%s",
+                getStatistic(stats, "numberOfPackedObjects"),
+                (double) packedBytes / WindowCacheConfig.MB,
+                nPackFiles,
+                nPackFiles == 1 ? "" : "s",
+                getStatistic(stats, "numberOfLooseObjects"),
+                (double) cachedBytes / WindowCacheConfig.MB,
+                (double) cacheLimit / WindowCacheConfig.MB,
+                WindowCacheStats.getOpenFiles(),
+                WindowCacheStats.getOpenFiles() == 1 ? "" : "s",
+                packedBytes > cacheLimit && cachedBytes >= 0.9 * cacheLimit ?
+                        " (full, a larger PACKED_GIT_LIMIT may reduce reads from disk)" : "");
+    }
+
+    private static long getStatistic(Properties stats, String name) {
+        // The statistics are numbers, so cannot be read with getProperty
+        final Object value = stats.get(name);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
     /**
      * Gets a diff reference for the most recent diff or the one at the given head
      * @param head a string representing a hash or tag to use as a head
@@ -100,7 +277,7 @@ public class RepositoryInitializer {
         try {
             return new RepositoryCommitReference(
                     this.repoRef,
-                    GitUtil.getRepoNameFromGithubURI(this.gitURI),
+                    GitUtil.getRepoNameFromURI(this.gitURI),
                     this.gitURI,
                     revWalk.parseCommit(this.repoRef.getRepository().resolve(
                             head != null ? head : Constants.HEAD))
@@ -112,12 +289,15 @@ public class RepositoryInitializer {
     }
 
     /**
-     * Attempts to delete the files generated by the initializer
+     * Closes the repository, and attempts to delete it if it was cloned only for this run
      */
     public void cleanRepo() {
         if( this.repoRef != null ) {
             this.repoRef.getRepository().close();
         }
+        if( !this.temporaryClone ) {
+            return;
+        }
         File repo = new File(this.repoDir);
         try {
             FileUtils.deleteDirectory(repo);
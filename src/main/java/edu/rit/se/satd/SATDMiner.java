@@ -4,7 +4,15 @@ import edu.rit.se.git.DevNullCommitReference;
 import edu.rit.se.git.GitUtil;
 import edu.rit.se.git.RepositoryCommitReference;
 import edu.rit.se.git.RepositoryInitializer;
+import edu.rit.se.satd.detector.CachingSATDDetector;
 import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.management.ManagementUtil;
+import edu.rit.se.satd.management.SATDMinerMXBean;
+import edu.rit.se.satd.metrics.Count;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import edu.rit.se.satd.mining.MinerState;
 import edu.rit.se.satd.mining.RepositoryDiffMiner;
 import edu.rit.se.satd.mining.ui.ElapsedTimer;
 import edu.rit.se.satd.mining.ui.MinerStatus;
@@ -12,15 +20,26 @@ import edu.rit.se.satd.model.SATDDifference;
 import edu.rit.se.satd.model.SATDInstance;
 import edu.rit.se.satd.model.SATDInstanceInFile;
 import edu.rit.se.satd.writer.OutputWriter;
+import edu.rit.se.satd.writer.QueuedOutputWriter;
+import edu.rit.se.util.ParsedCommentCache;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 
+import javax.management.ObjectName;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,12 +52,19 @@ public class SATDMiner {
     private String repositoryURI;
     @NonNull
     private SATDDetector satdDetector;
+    @NonNull
+    private MinerConfiguration config;
 
     @Setter
     private String githubUsername = null;
     @Setter
     private String githubPassword = null;
 
+    // A directory in which mirrors of remote repositories are kept between runs, so that only
+    // new objects are fetched. If null, the repository is cloned and deleted once mined.
+    @Setter
+    private File mirrorDir = null;
+
     // A reference to the repository initializes. Stored so it can be cleaned
     // once mining has completed
     private RepositoryInitializer repo;
@@ -52,13 +78,64 @@ public class SATDMiner {
 
     private int curSATDId;
 
-    @Getter
-    private static boolean errorOutputEnabled = true;
+    // The number of diffs which may be mined concurrently. The supplied SATDDetector
+    // must be safe to use from multiple threads when this is greater than 1. May be changed
+    // while mining, and takes effect before the next diff is mined.
+    @Setter
+    private volatile int nThreads = 1;
+
+    // The number of mined diffs which may wait to be written before mining is paused
+    @Setter
+    private int writeQueueDepth = 16;
+
+    // The number of threads writing mined diffs. The supplied OutputWriter must be safe
+    // to use from multiple threads when this is greater than 1, and diffs may then be
+    // written out of order.
+    @Setter
+    private int nWriterThreads = 1;
+
+    // A file storing the state of the miner between runs. If the file exists, only the
+    // commits made since the stored head commit are mined.
+    @Setter
+    private File stateFile = null;
+
+    // The number of diffs mined between checkpoints of the miner's state, from which an
+    // interrupted run can resume. If 0, the state is only stored once mining completes.
+    @Setter
+    private int checkpointInterval = 0;
+
+    // The head commit mined by a previous run. It and its history are not mined again.
+    private String previousHeadCommit = null;
+
+    // The head commit being mined, and the number of its diffs which have been mined. This
+    // includes the diffs written before an interrupted run, which are not mined again.
+    private String miningHeadCommit;
+    private int nDiffsMined = 0;
+
+    // Set if a mined diff could not be written, in which case the state is not stored
+    private volatile boolean writeFailed = false;
+
+    // Set through the miner's management bean. While paused, no new diffs are mined. A
+    // requested checkpoint is taken by the mining thread once the diff being mined is written.
+    private volatile boolean paused = false;
+    private volatile boolean checkpointRequested = false;
+    private final Object pauseLock = new Object();
+
+    // The queue of diffs being written, while the repository is being mined
+    private volatile QueuedOutputWriter queuedWriter = null;
+
+    // The names the miner's management beans were registered with
+    private ObjectName managementName = null;
 
     public SATDMiner(String repositoryURI, SATDDetector satdDetector) {
+        this(repositoryURI, satdDetector, MinerConfiguration.builder().build());
+    }
+
+    public SATDMiner(String repositoryURI, SATDDetector satdDetector, MinerConfiguration config) {
         this.repositoryURI = repositoryURI;
         this.satdDetector = satdDetector;
-        this.status = new MinerStatus(GitUtil.getRepoNameFromGithubURI(this.repositoryURI));
+        this.config = config;
+        this.status = new MinerStatus(GitUtil.getRepoNameFromURI(this.repositoryURI));
         // Start the SATD ID incrementing on a unique value for each repository
         this.curSATDId = this.repositoryURI.hashCode();
     }
@@ -67,42 +144,65 @@ public class SATDMiner {
         this.status.setOutputEnabled(false);
     }
 
-    public static void disableErrorOutput() {
-        errorOutputEnabled = false;
-    }
-
     public RepositoryCommitReference getBaseCommit(String head) {
         this.timer.start();
         this.status.beginInitialization();
-        if( (repo == null || !repo.didInitialize()) &&
-                !this.initializeRepo(this.githubUsername, this.githubPassword) ) {
-            System.err.println("Repository failed to initialize");
-            return null;
+        MinerMetrics.beginRepository(GitUtil.getRepoNameFromURI(this.repositoryURI));
+        if( this.managementName == null ) {
+            this.managementName = ManagementUtil.register("Miner",
+                    GitUtil.getRepoNameFromURI(this.repositoryURI), new Management());
+        }
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.CLONE) ) {
+            if( (repo == null || !repo.didInitialize()) &&
+                    !this.initializeRepo(this.githubUsername, this.githubPassword) ) {
+                System.err.println("Repository failed to initialize");
+                return null;
+            }
+            return this.repo.getMostRecentCommit(head);
         }
-        return this.repo.getMostRecentCommit(head);
     }
 
     /**
      * Cleans the repository that was mined by the Miner. This should delete all files created
-     * by the miner.
+     * by the miner, but never a mirror or a repository that was mined in place. This may be
+     * called even if mining failed.
      */
     public void cleanRepo() {
         this.status.beginCleanup();
-        this.repo.cleanRepo();
-        try {
-            // Two files are created, so delete the parent as well
-            FileUtils.deleteDirectory(new File(repo.getRepoDir()).getParentFile());
-        } catch (IOException e) {
-            System.err.println("Error in deleting cleaned git repo.");
-            e.printStackTrace();
+        // Closing the repository empties the object cache of its packs, so report on it first
+        final String objectStoreReport = this.repo != null ? this.repo.getObjectStoreReport() : null;
+        if( this.repo != null ) {
+            this.repo.cleanRepo();
+        }
+        if( this.repo != null && this.repo.isTemporaryClone() ) {
+            final File repoDir = new File(this.repo.getRepoDir());
+            try {
+                FileUtils.deleteDirectory(repoDir);
+            } catch (IOException e) {
+                System.err.println("Error in deleting cleaned git repo.");
+                e.printStackTrace();
+            }
+            // The owner's directory may hold other repositories still being mined, so it is
+            // only deleted once empty, which File.delete guarantees for directories
+            final File ownerDir = repoDir.getParentFile();
+            if( ownerDir != null ) {
+                ownerDir.delete();
+            }
         }
         this.timer.end();
         this.status.setComplete(this.timer.readMS());
+        if( objectStoreReport != null ) {
+            System.out.println(objectStoreReport);
+        }
+        MinerMetrics.endRepository();
+        ManagementUtil.unregister(this.managementName);
+        this.managementName = null;
     }
 
     /**
      * Iterates over all supplied commits, and outputs a difference in SATD occurrences between
-     * each adjacent diff reference in commitRefs
+     * each adjacent diff reference in commitRefs. Mined diffs are written by a separate
+     * pool of writer threads, and every diff has been written once this method returns.
      * @param commitRef a list of supplied diff references to be diffed for SATD
      * @param writer an OutputWriter that will handle the output of the miner
      */
@@ -113,66 +213,350 @@ public class SATDMiner {
         }
         this.status.beginCalculatingDiffs();
 
-        final List<DiffPair> allDiffPairs =  this.getAllDiffPairs(commitRef);
+        if( this.stateFile != null && this.stateFile.exists() ) {
+            commitRef = this.loadState(commitRef);
+        }
+        this.miningHeadCommit = commitRef.getCommitHash();
+
+        final List<RevCommit> commitsToMine;
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.COMMIT_WALK) ) {
+            commitsToMine = this.getCommitsToMine(commitRef);
+        } catch (IOException e) {
+            System.err.println("\nError walking the commits of the repository: " + e.getLocalizedMessage());
+            this.status.setError();
+            return;
+        }
+        final RepositoryCommitReference headRef = commitRef;
+        // Diff pairs are only created as they are mined. Diffs written before resuming
+        // from a checkpoint are not mined again.
+        final Stream<DiffPair> unminedDiffPairs = commitsToMine.stream()
+                .skip(this.nDiffsMined)
+                .map(commit -> this.getDiffPair(headRef, commit));
 
         this.status.beginMiningSATD();
-        this.status.setNDiffsPromised(allDiffPairs.size());
-
-        allDiffPairs.stream()
-                .map(pair -> new RepositoryDiffMiner(pair.parentRepo, pair.repo, this.satdDetector))
-                .map(repositoryDiffMiner -> {
-                    this.status.setDisplayWindow(repositoryDiffMiner.getDiffString());
-                    return repositoryDiffMiner.mineDiff();
-                })
-                .map(this::mapInstancesInDiffToPriorInstances)
-                .forEach(diff -> {
-                    try {
-                        writer.writeDiff(diff);
-                        this.status.fulfilDiffPromise();
-                    } catch (IOException e) {
-                        this.status.addErrorEncountered();
-                        System.err.println("Error writing diff: " + e.getLocalizedMessage());
-                    }
-                });
+        this.status.setNDiffsPromised(Math.max(0, commitsToMine.size() - this.nDiffsMined));
 
+        final QueuedOutputWriter queuedWriter = new QueuedOutputWriter(writer,
+                this.writeQueueDepth, this.nWriterThreads, new QueuedOutputWriter.WriteListener() {
+            @Override
+            public void onDiffWritten(SATDDifference diff) {
+                status.fulfilDiffPromise();
+            }
+
+            @Override
+            public void onWriteFailed(SATDDifference diff, IOException e) {
+                writeFailed = true;
+                status.addErrorEncountered();
+                System.err.println("Error writing diff: " + e.getLocalizedMessage());
+            }
+        });
+        this.queuedWriter = queuedWriter;
+        final ObjectName writerManagementName = ManagementUtil.register("Writer",
+                GitUtil.getRepoNameFromURI(this.repositoryURI), queuedWriter);
+        try {
+            this.mineDiffPairs(unminedDiffPairs.iterator(), queuedWriter);
+            queuedWriter.flush();
+            if( this.stateFile != null ) {
+                this.saveState(commitRef);
+            }
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("Error flushing written diffs: " + e.getLocalizedMessage());
+        } finally {
+            queuedWriter.close();
+            ManagementUtil.unregister(writerManagementName);
+            this.queuedWriter = null;
+        }
+    }
+
+    /**
+     * Restores the SATD IDs stored by a previous run, whose head commit is not mined again
+     * along with its history. If the stored state is a checkpoint, mining resumes from the
+     * first diff of the checkpointed head commit which had not been written. If a stored commit
+     * is no longer in the repository, such as after its history was rewritten, the stored
+     * state is ignored.
+     * @param commitRef the head commit to mine
+     * @return the head commit to mine, which is the checkpointed head commit if one was stored
+     */
+    private RepositoryCommitReference loadState(RepositoryCommitReference commitRef) {
+        final MinerState state;
+        try {
+            state = MinerState.load(this.stateFile);
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("\nError reading miner state, mining all commits: " + e.getLocalizedMessage());
+            return commitRef;
+        }
+        RepositoryCommitReference headRef = commitRef;
+        try (RevWalk revWalk = new RevWalk(commitRef.getGitInstance().getRepository())) {
+            if( state.isCheckpoint() && !state.getCheckpointCommit().equals(commitRef.getCommitHash()) ) {
+                // The diffs of the checkpoint are only the same for the same head commit, so the
+                // interrupted head is finished first
+                headRef = new RepositoryCommitReference(commitRef.getGitInstance(), commitRef.getProjectName(),
+                        commitRef.getProjectURI(),
+                        revWalk.parseCommit(ObjectId.fromString(state.getCheckpointCommit())));
+                System.err.println("\nResuming the interrupted mining of " + state.getCheckpointCommit() +
+                        ". Any later commits will be mined by the next run");
+            }
+            if( state.getHeadCommit() != null ) {
+                // Make sure the history has not been rewritten since it was mined
+                revWalk.parseCommit(ObjectId.fromString(state.getHeadCommit()));
+            }
+        } catch (MissingObjectException e) {
+            System.err.println("\nPreviously mined commit " + e.getObjectId().getName() +
+                    " is no longer in the repository, mining all commits");
+            return commitRef;
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("\nError finding previously mined commits, mining all commits: " +
+                    e.getLocalizedMessage());
+            return commitRef;
+        }
+        this.previousHeadCommit = state.getHeadCommit();
+        this.satdInstanceMappings = state.getSatdInstanceMappings();
+        this.curSATDId = state.getCurSATDId();
+        this.nDiffsMined = state.isCheckpoint() ? state.getNDiffsWritten() : 0;
+        return headRef;
+    }
+
+    /**
+     * Stores the state of the miner once every diff mined so far has been written, so that an
+     * interrupted run can resume from this point. Writing must catch up with mining first,
+     * so checkpoints should be taken every few thousand diffs rather than after every diff.
+     * @param writer the queue of diffs to be written
+     */
+    private void saveCheckpoint(QueuedOutputWriter writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("\nError flushing written diffs: " + e.getLocalizedMessage());
+            return;
+        }
+        // Resuming from here would skip any diff which failed to write
+        if( this.writeFailed ) {
+            return;
+        }
+        try {
+            new MinerState(this.previousHeadCommit, this.miningHeadCommit, this.nDiffsMined,
+                    this.curSATDId, this.satdInstanceMappings).save(this.stateFile);
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("\nError storing miner checkpoint: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Stores the SATD IDs of the instances present once the given head commit has been mined.
+     * Nothing is stored if any mined diff could not be written, so the next run mines those
+     * diffs again.
+     * @param commitRef the head commit that was mined
+     */
+    private void saveState(RepositoryCommitReference commitRef) {
+        if( this.writeFailed ) {
+            System.err.println("\nNot all diffs were written, so the miner state was not stored");
+            return;
+        }
+        try {
+            new MinerState(commitRef.getCommitHash(), this.curSATDId, this.satdInstanceMappings)
+                    .save(this.stateFile);
+        } catch (IOException e) {
+            this.status.addErrorEncountered();
+            System.err.println("\nError storing miner state: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Mines the given diff pairs one at a time on the current thread, until the number of
+     * threads is raised above 1, after which the remaining pairs are mined in parallel.
+     * @param pairs the sorted diff pairs to mine
+     * @param writer the queue of diffs to be written
+     */
+    private void mineDiffPairs(Iterator<DiffPair> pairs, QueuedOutputWriter writer) {
+        try {
+            while( pairs.hasNext() ) {
+                if( this.nThreads > 1 ) {
+                    this.mineDiffPairsInParallel(pairs, writer);
+                    return;
+                }
+                this.awaitResume(writer);
+                if( this.nThreads > 1 ) {
+                    // The number of threads was raised while paused
+                    continue;
+                }
+                final DiffPair pair = pairs.next();
+                final RepositoryDiffMiner repositoryDiffMiner =
+                        new RepositoryDiffMiner(pair.parentRepo, pair.repo, this.satdDetector, this.config);
+                this.status.setDisplayWindow(repositoryDiffMiner.getDiffString());
+                this.writeMinedDiff(repositoryDiffMiner.mineDiff(), writer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.status.setError();
+        }
+    }
+
+    /**
+     * Mines the given diff pairs on a pool of worker threads. Mined diffs are consumed in the
+     * same order as the supplied list, so SATD instance IDs are assigned exactly as they would be
+     * in a sequential run.
+     * @param pairs the sorted diff pairs to mine
+     * @param writer the queue of diffs to be written
+     */
+    private void mineDiffPairsInParallel(Iterator<DiffPair> pairs, QueuedOutputWriter writer) {
+        final ThreadPoolExecutor miningPool =
+                (ThreadPoolExecutor) Executors.newFixedThreadPool(Math.max(1, this.nThreads));
+        // Diffs that have been submitted for mining, in the order they must be written.
+        // Bounded so that completed diffs cannot pile up behind a slow one.
+        final Deque<Future<SATDDifference>> reorderBuffer = new ArrayDeque<>();
+        try {
+            while( pairs.hasNext() || !reorderBuffer.isEmpty() ) {
+                final int nThreads = Math.max(1, this.nThreads);
+                resizePool(miningPool, nThreads);
+                while( !this.paused && pairs.hasNext() && reorderBuffer.size() < 2 * nThreads ) {
+                    final DiffPair pair = pairs.next();
+                    final RepositoryDiffMiner diffMiner =
+                            new RepositoryDiffMiner(pair.parentRepo, pair.repo, this.satdDetector, this.config);
+                    reorderBuffer.add(miningPool.submit(diffMiner::mineDiff));
+                }
+                if( reorderBuffer.isEmpty() ) {
+                    // Paused, and every diff that was being mined has been queued to be written
+                    this.awaitResume(writer);
+                    continue;
+                }
+                final SATDDifference diff = reorderBuffer.remove().get();
+                this.status.setDisplayWindow(diff.getNewCommit().getName());
+                this.writeMinedDiff(diff, writer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.status.setError();
+        } catch (ExecutionException e) {
+            // Fail the same way the sequential miner would
+            if( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            } else if( e.getCause() instanceof Error ) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            miningPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Assigns IDs to the instances in the diff and queues it to be written to the output,
+     * taking a checkpoint of the miner's state if one is due
+     * @param diff a mined SATDDifference object
+     * @param writer the queue of diffs to be written
+     */
+    private void writeMinedDiff(SATDDifference diff, QueuedOutputWriter writer) {
+        try {
+            final SATDDifference mappedDiff = this.mapInstancesInDiffToPriorInstances(diff);
+            MinerMetrics.count(Count.SATD_INSTANCES, mappedDiff.getSatdInstances().size());
+            writer.writeDiff(mappedDiff);
+        } catch (IOException e) {
+            this.writeFailed = true;
+            this.status.addErrorEncountered();
+            System.err.println("Error writing diff: " + e.getLocalizedMessage());
+        }
+        this.nDiffsMined++;
+        if( this.stateFile != null && (this.checkpointRequested || (this.checkpointInterval > 0 &&
+                this.nDiffsMined % this.checkpointInterval == 0)) ) {
+            this.checkpointRequested = false;
+            this.saveCheckpoint(writer);
+        }
+    }
+
+    /**
+     * Waits until the miner is resumed if it is paused, taking any checkpoint requested while
+     * waiting
+     * @param writer the queue of diffs to be written
+     * @throws InterruptedException thrown if interrupted while paused
+     */
+    private void awaitResume(QueuedOutputWriter writer) throws InterruptedException {
+        while( this.paused ) {
+            if( this.checkpointRequested ) {
+                this.checkpointRequested = false;
+                this.saveCheckpoint(writer);
+            }
+            synchronized( this.pauseLock ) {
+                if( this.paused && !this.checkpointRequested ) {
+                    this.pauseLock.wait();
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes the number of threads in a fixed pool
+     */
+    private static void resizePool(ThreadPoolExecutor pool, int nThreads) {
+        // The core size may never be larger than the maximum size
+        if( nThreads > pool.getMaximumPoolSize() ) {
+            pool.setMaximumPoolSize(nThreads);
+            pool.setCorePoolSize(nThreads);
+        } else if( nThreads < pool.getCorePoolSize() ) {
+            pool.setCorePoolSize(nThreads);
+            pool.setMaximumPoolSize(nThreads);
+        }
     }
 
     private boolean initializeRepo(String username, String password) {
         this.repo = ( username != null && password != null ) ?
-                new RepositoryInitializer(this.repositoryURI, GitUtil.getRepoNameFromGithubURI(this.repositoryURI),
+                new RepositoryInitializer(this.repositoryURI, GitUtil.getRepoNameFromURI(this.repositoryURI),
                         username, password):
-                new RepositoryInitializer(this.repositoryURI, GitUtil.getRepoNameFromGithubURI(this.repositoryURI));
+                new RepositoryInitializer(this.repositoryURI, GitUtil.getRepoNameFromURI(this.repositoryURI));
+        this.repo.setMirrorDir(this.mirrorDir);
         return this.repo.initRepo();
     }
 
-    private List<DiffPair> getAllDiffPairs(RepositoryCommitReference curRef) {
-        final Set<RepositoryCommitReference> visitedCommits = new HashSet<>();
-        final Set<RepositoryCommitReference> allCommits = new HashSet<>();
-        allCommits.add(curRef);
-        // Continue until no new diff refs are found
-        while( allCommits.size() > visitedCommits.size() ) {
-            allCommits.addAll(
-                    allCommits.stream()
-                            .filter(ref -> !visitedCommits.contains(ref))
-                            .peek(visitedCommits::add)
-                            .map(RepositoryCommitReference::getParentCommitReferences)
-                            .flatMap(Collection::stream)
-                            .collect(Collectors.toSet())
-            );
-        }
-        return allCommits.stream()
+    /**
+     * Walks the history of the head commit once, excluding any history mined by a previous run
+     * @param headRef the head commit to mine
+     * @return every non-merge commit to mine, in the order they should be mined
+     * @throws IOException thrown if the commits could not be walked
+     */
+    private List<RevCommit> getCommitsToMine(RepositoryCommitReference headRef) throws IOException {
+        final List<RevCommit> commits = new ArrayList<>();
+        try (RevWalk revWalk = new RevWalk(headRef.getGitInstance().getRepository())) {
+            revWalk.markStart(revWalk.parseCommit(headRef.getCommit()));
+            if( this.previousHeadCommit != null ) {
+                revWalk.markUninteresting(revWalk.parseCommit(ObjectId.fromString(this.previousHeadCommit)));
+            }
+            for( final RevCommit commit : revWalk ) {
                 // Only include non-merge commits
-                .filter(ref -> ref.getParentCommitReferences().size() < 2)
-                .flatMap(ref -> {
-                    if( ref.getParentCommitReferences().isEmpty() ) {
-                        return Stream.of(new DiffPair(ref, new DevNullCommitReference()));
-                    } else {
-                        return ref.getParentCommitReferences().stream()
-                                .map(parent -> new DiffPair(ref, parent));
-                    }
-                })
-                .sorted()
-                .collect(Collectors.toList());
+                if( commit.getParentCount() < 2 ) {
+                    commits.add(commit);
+                }
+            }
+            // The walk discards the bodies of uninteresting commits, such as the previous head,
+            // so parse the bodies of any parents which are diffed against
+            for( final RevCommit commit : commits ) {
+                if( commit.getParentCount() > 0 && commit.getParent(0).getRawBuffer() == null ) {
+                    revWalk.parseBody(commit.getParent(0));
+                }
+            }
+        }
+        commits.sort(COMMIT_ORDER);
+        return commits;
+    }
+
+    /**
+     * @param headRef the head commit being mined
+     * @param commit a non-merge commit reachable from the head commit
+     * @return the diff between the commit and its parent. Parents are parsed by the walk
+     * that found the commit, including the bodies of those the walk marked uninteresting,
+     * so no further parsing is needed.
+     */
+    private DiffPair getDiffPair(RepositoryCommitReference headRef, RevCommit commit) {
+        final RepositoryCommitReference ref = new RepositoryCommitReference(headRef.getGitInstance(),
+                headRef.getProjectName(), headRef.getProjectURI(), commit);
+        if( commit.getParentCount() == 0 ) {
+            return new DiffPair(ref, new DevNullCommitReference());
+        }
+        return new DiffPair(ref, new RepositoryCommitReference(headRef.getGitInstance(),
+                headRef.getProjectName(), headRef.getProjectURI(), commit.getParent(0)));
     }
 
     /**
@@ -205,7 +589,7 @@ public class SATDMiner {
                 if( !this.satdInstanceMappings.containsKey(satdInstance.getNewInstance()) ) {
                     this.satdInstanceMappings.put(satdInstance.getNewInstance(), this.getNewSATDId());
                 } else {
-                    if( isErrorOutputEnabled() ) {
+                    if( this.config.isErrorOutputEnabled() ) {
                         System.err.println("\nMultiple SATD_ADDED instances for " +
                                 satdInstance.getOldInstance().toString());
                     }
@@ -218,7 +602,7 @@ public class SATDMiner {
                 if( !this.satdInstanceMappings.containsKey(satdInstance.getOldInstance()) ) {
                     // Looks like we cannot find the old SATD Instance for whatever reason
                     // This is not a case which should be hit
-                    if( isErrorOutputEnabled() ) {
+                    if( this.config.isErrorOutputEnabled() ) {
                         System.err.println("\nCould not get satd_instance_id for " +
                                 satdInstance.getOldInstance().toString());
                     }
@@ -237,7 +621,7 @@ public class SATDMiner {
                 if( !this.satdInstanceMappings.containsKey(satdInstance.getOldInstance()) ) {
                     // Looks like we cannot find the old SATD Instance for whatever reason
                     // This is not a case which should be hit
-                    if( isErrorOutputEnabled() ) {
+                    if( this.config.isErrorOutputEnabled() ) {
                         System.err.println("\nCould not get satd_instance_id for " +
                                 satdInstance.getOldInstance().toString());
                     }
@@ -269,6 +653,116 @@ public class SATDMiner {
         return ++this.curSATDId;
     }
 
+    // The order commits are mined in: by commit time, then authored time, then hash so that
+    // diffs are always mined in the same order, which resuming from a checkpoint relies on
+    private static final Comparator<RevCommit> COMMIT_ORDER = Comparator
+            .comparingInt(RevCommit::getCommitTime)
+            .thenComparingLong((RevCommit commit) -> commit.getAuthorIdent().getWhen().getTime())
+            .thenComparing(RevCommit::getName);
+
+    /**
+     * Exposes the miner's progress and controls through JMX
+     */
+    private class Management implements SATDMinerMXBean {
+
+        @Override
+        public String getRepository() {
+            return GitUtil.getRepoNameFromURI(repositoryURI);
+        }
+
+        @Override
+        public String getStatus() {
+            return status.getStatus();
+        }
+
+        @Override
+        public String getCurrentDiff() {
+            return status.getDisplayWindow();
+        }
+
+        @Override
+        public int getDiffsPromised() {
+            return status.getNDiffsPromised();
+        }
+
+        @Override
+        public int getDiffsWritten() {
+            return status.getNDiffsComplete();
+        }
+
+        @Override
+        public int getErrors() {
+            return status.getNErrorsEncountered();
+        }
+
+        @Override
+        public int getWriteQueueSize() {
+            final QueuedOutputWriter writer = queuedWriter;
+            return writer != null ? writer.getQueueSize() : 0;
+        }
+
+        @Override
+        public int getThreads() {
+            return nThreads;
+        }
+
+        @Override
+        public void setThreads(int nThreads) {
+            if( nThreads < 1 ) {
+                throw new IllegalArgumentException("At least one thread must mine diffs");
+            }
+            SATDMiner.this.nThreads = nThreads;
+        }
+
+        @Override
+        public boolean isPaused() {
+            return paused;
+        }
+
+        @Override
+        public double getCommentCacheHitRate() {
+            return ParsedCommentCache.getInstance().getHitRate();
+        }
+
+        @Override
+        public double getSatdCacheHitRate() {
+            return satdDetector instanceof CachingSATDDetector ?
+                    ((CachingSATDDetector) satdDetector).getHitRate() : -1;
+        }
+
+        @Override
+        public void pause() {
+            paused = true;
+        }
+
+        @Override
+        public void resume() {
+            synchronized( pauseLock ) {
+                paused = false;
+                pauseLock.notifyAll();
+            }
+        }
+
+        @Override
+        public void checkpoint() {
+            if( stateFile == null ) {
+                throw new IllegalStateException("The miner has no state file to checkpoint to");
+            }
+            synchronized( pauseLock ) {
+                checkpointRequested = true;
+                pauseLock.notifyAll();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            final QueuedOutputWriter writer = queuedWriter;
+            if( writer != null ) {
+                writer.flush();
+            }
+        }
+    }
+
     @RequiredArgsConstructor
     public class DiffPair implements Comparable {
 
@@ -296,13 +790,7 @@ public class SATDMiner {
         @Override
         public int compareTo(Object o) {
             if( o instanceof DiffPair ) {
-                int commitTimeDiff = this.repo.getCommitTime() - ((DiffPair) o).repo.getCommitTime();
-                // If the commits were committed at the same time, look at the authored date
-                // to determine which came first
-                if( commitTimeDiff == 0 ) {
-                    return Long.compare(this.repo.getAuthoredTime(), ((DiffPair) o).repo.getAuthoredTime());
-                }
-                return commitTimeDiff;
+                return COMMIT_ORDER.compare(this.repo.getCommit(), ((DiffPair) o).repo.getCommit());
             }
             return -1;
         }
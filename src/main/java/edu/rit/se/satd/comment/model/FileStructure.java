@@ -0,0 +1,194 @@
+package edu.rit.se.satd.comment.model;
+
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.VariableDeclarator;
+import edu.rit.se.util.IntervalTree;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static edu.rit.se.util.JavaParseUtil.NULL_RANGE;
+
+/**
+ * The lines spanned by the classes and methods declared in a Java file. This is all the
+ * information needed to determine the containing class and method of a comment.
+ *
+ * Spans are indexed the first time they are searched, so that each comment in a file
+ * can be placed without checking every class and method in the file.
+ */
+public class FileStructure {
+
+    // Every class or interface declared in the file, in the order they are declared
+    @Getter
+    private final List<ClassSpan> classes = new ArrayList<>();
+
+    private IntervalTree<ClassSpan> classIndex = null;
+
+    public void addClass(ClassSpan span) {
+        this.classes.add(span);
+        this.classIndex = null;
+    }
+
+    /**
+     * Finds the class containing the given lines. If several classes overlap the lines, the
+     * one declared first, which is the outermost class, is used.
+     * @param startLine the first line
+     * @param endLine the last line
+     * @return the containing class, or empty if no class overlaps the lines
+     */
+    public Optional<ClassSpan> findContainingClass(int startLine, int endLine) {
+        if( this.classIndex == null ) {
+            this.classIndex = new IntervalTree<>(this.classes,
+                    this.classes.stream().mapToInt(ClassSpan::getStartLine).toArray(),
+                    this.classes.stream().mapToInt(ClassSpan::getEndLine).toArray());
+        }
+        return this.classIndex.findFirstOverlapping(startLine, endLine);
+    }
+
+    /**
+     * Builds the structure of a file parsed by JavaParser
+     * @param root the root node of the file
+     * @return the spans of every class and method declared beneath the root
+     */
+    public static FileStructure fromJavaParser(Node root) {
+        final FileStructure structure = new FileStructure();
+        final Map<Node, ClassSpan> spans = new IdentityHashMap<>();
+        for( final ClassOrInterfaceDeclaration classDec : root.findAll(ClassOrInterfaceDeclaration.class) ) {
+            if( classDec.getRange().isPresent() ) {
+                final ClassSpan span = new ClassSpan(
+                        classDec.getRange().get().begin.line,
+                        classDec.getFullyQualifiedName().orElse(GroupedComment.UNKNOWN),
+                        classDec.getName().getRange().orElse(NULL_RANGE).begin.line);
+                span.setEndLine(classDec.getRange().get().end.line);
+                structure.addClass(span);
+                spans.put(classDec, span);
+            }
+        }
+        // Class variables are those declared directly in a class, and belong to
+        // that class as well as every class containing it
+        for( final VariableDeclarator varDec : root.findAll(VariableDeclarator.class) ) {
+            if( varDec.getRange().isPresent() && varDec.getParentNode().isPresent() &&
+                    varDec.getParentNode().get().getParentNode().isPresent() &&
+                    varDec.getParentNode().get().getParentNode().get() instanceof ClassOrInterfaceDeclaration ) {
+                final int endLine = varDec.getRange().get().end.line;
+                forEachContainingClass(varDec, spans, span -> span.addField(endLine));
+            }
+        }
+        // Methods belong to every class containing them
+        for( final MethodDeclaration methodDec : root.findAll(MethodDeclaration.class) ) {
+            if( methodDec.getRange().isPresent() ) {
+                final Range range = methodDec.getRange().get();
+                final MethodSpan method = new MethodSpan(range.begin.line);
+                method.setEndLine(range.end.line);
+                method.setDeclaration(methodDec.getDeclarationAsString(false, false, false));
+                forEachContainingClass(methodDec, spans, span -> span.addMethod(method));
+            }
+        }
+        return structure;
+    }
+
+    private static void forEachContainingClass(Node node, Map<Node, ClassSpan> spans, Consumer<ClassSpan> action) {
+        Optional<Node> parent = node.getParentNode();
+        while( parent.isPresent() ) {
+            final ClassSpan span = spans.get(parent.get());
+            if( span != null ) {
+                action.accept(span);
+            }
+            parent = parent.get().getParentNode();
+        }
+    }
+
+    /**
+     * The span of a class or interface declaration
+     */
+    @RequiredArgsConstructor
+    public static class ClassSpan {
+
+        @Getter
+        private final int startLine;
+        @Getter
+        @Setter
+        private int endLine = -1;
+        @Getter
+        private final String fullyQualifiedName;
+        @Getter
+        private final int nameLine;
+        // The last line of any field declared in this class or a class nested within it
+        @Getter
+        private int lastFieldLine = -1;
+        // Every method declared within the class, including those of nested and anonymous classes,
+        // in the order they are declared
+        @Getter
+        private final List<MethodSpan> methods = new ArrayList<>();
+
+        private IntervalTree<MethodSpan> methodIndex = null;
+
+        public void addField(int fieldEndLine) {
+            this.lastFieldLine = Integer.max(this.lastFieldLine, fieldEndLine);
+            this.methodIndex = null;
+        }
+
+        public void addMethod(MethodSpan method) {
+            this.methods.add(method);
+            this.methodIndex = null;
+        }
+
+        /**
+         * Finds the method that the given lines pertain to.
+         *
+         * Each method's bounds begin at the end of the previous method. This is done to associate
+         * comments that are not inside the contents of a method with the method that they pertain to.
+         * The first method in the class can be assumed to begin after all class variables have
+         * been defined, so its bounds begin at the end of the final variable declaration.
+         * @param startLine the first line
+         * @param endLine the last line
+         * @return the first method whose bounds overlap the lines, or empty if there is none
+         */
+        public Optional<MethodSpan> findContainingMethod(int startLine, int endLine) {
+            if( this.methodIndex == null ) {
+                // TODO fix issue where class variables are defined after a method
+                final List<MethodSpan> sortedMethods = new ArrayList<>(this.methods);
+                sortedMethods.sort(Comparator.comparingInt(MethodSpan::getStartLine));
+                final int[] boundStarts = new int[sortedMethods.size()];
+                final int[] boundEnds = new int[sortedMethods.size()];
+                int lastMethodEnd = this.lastFieldLine;
+                for( int i = 0; i < sortedMethods.size(); i++ ) {
+                    final int methodEnd = sortedMethods.get(i).getEndLine();
+                    boundStarts[i] = Integer.min(lastMethodEnd, methodEnd);
+                    boundEnds[i] = Integer.max(lastMethodEnd, methodEnd);
+                    lastMethodEnd = methodEnd;
+                }
+                this.methodIndex = new IntervalTree<>(sortedMethods, boundStarts, boundEnds);
+            }
+            return this.methodIndex.findFirstOverlapping(startLine, endLine);
+        }
+    }
+
+    /**
+     * The span of a method declaration
+     */
+    @RequiredArgsConstructor
+    public static class MethodSpan {
+
+        @Getter
+        private final int startLine;
+        @Getter
+        @Setter
+        private int endLine = -1;
+        // The method's return type, name and parameter types, as printed by JavaParser
+        @Getter
+        @Setter
+        private String declaration;
+    }
+}
@@ -1,35 +1,26 @@
 package edu.rit.se.satd.comment.model;
 
-import com.github.javaparser.Position;
-import com.github.javaparser.Range;
-import com.github.javaparser.ast.Node;
-import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.VariableDeclarator;
 import com.github.javaparser.ast.comments.Comment;
-import com.github.javaparser.ast.expr.VariableDeclarationExpr;
-import edu.rit.se.util.JavaParseUtil;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import static edu.rit.se.util.JavaParseUtil.NULL_RANGE;
-
 /**
  * A model used to represent a single comment
  */
 @NoArgsConstructor(access = AccessLevel.PRIVATE) // For internal use only
 @AllArgsConstructor(access = AccessLevel.PROTECTED) // For internal use only
-public class GroupedComment implements Comparable {
+public class GroupedComment implements Comparable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
-    private static final String UNKNOWN = "None";
+    static final String UNKNOWN = "None";
 
     @Getter
     private int startLine = -1;
@@ -138,7 +129,35 @@ public class GroupedComment implements Comparable {
         return (this.comment + this.containingMethod + this.containingClass + this.commentType).hashCode();
     }
 
+    /**
+     * Removes Java-syntax items from each line of a comment
+     * @param content the content of a java comment
+     * @return A cleaned comment
+     */
+    private static String cleanComment(String content) {
+        return Arrays.stream(content.trim().split("\n"))
+                .map(GroupedComment::cleanCommentLine)
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * Creates a comment from one parsed by JavaParser. This builds the structure of the
+     * file containing the comment, so when converting many comments from the same file
+     * the structure should be built once and supplied instead.
+     * @param oldComment a comment parsed by JavaParser
+     * @return a new GroupedComment
+     */
     public static GroupedComment fromJavaParserComment(Comment oldComment) {
+        return fromJavaParserComment(oldComment, FileStructure.fromJavaParser(oldComment.findRootNode()));
+    }
+
+    /**
+     * Creates a comment from one parsed by JavaParser
+     * @param oldComment a comment parsed by JavaParser
+     * @param structure the classes and methods declared in the file containing the comment
+     * @return a new GroupedComment
+     */
+    public static GroupedComment fromJavaParserComment(Comment oldComment, FileStructure structure) {
         final GroupedComment newComment = new GroupedComment();
         // Line numbers
         if( oldComment.getRange().isPresent() ) {
@@ -146,9 +165,7 @@ public class GroupedComment implements Comparable {
             newComment.endLine = oldComment.getRange().get().end.line;
         }
         // Clean up and set comment
-        newComment.comment = Arrays.stream(oldComment.getContent().trim().split("\n"))
-                .map(GroupedComment::cleanCommentLine)
-                .collect(Collectors.joining("\n"));
+        newComment.comment = cleanComment(oldComment.getContent());
         newComment.commentType = newComment.comment.contains("{") || newComment.comment.contains(";") ? TYPE_COMMENTED_SOURCE
                 : oldComment.isBlockComment() ? TYPE_BLOCK
                 : oldComment.isLineComment() ? TYPE_LINE
@@ -156,75 +173,55 @@ public class GroupedComment implements Comparable {
                 : oldComment.isJavadocComment() ? TYPE_JAVADOC
                 : TYPE_UNKNOWN;
 
-        // Get containing class and method data if found
-        final Optional<ClassOrInterfaceDeclaration> classRoot = oldComment.findRootNode()
-                .findAll(ClassOrInterfaceDeclaration.class)
-                .stream()
-                .filter(dec -> dec.getRange().isPresent())
-                .filter(dec ->
-                        JavaParseUtil.isRangeBetweenBounds(
-                                dec.getRange().get(), newComment.startLine, newComment.endLine))
-                .findFirst();
+        newComment.setContainingDeclarations(structure);
+        return newComment;
+    }
+
+    /**
+     * Creates a comment found by the JavaCommentLexer
+     * @param startLine the first line of the comment
+     * @param endLine the last line of the comment
+     * @param content the content of the comment, excluding the comment delimiters
+     * @param isBlockComment true if the comment is a block comment, false if it is a line comment
+     * @param structure the classes and methods declared in the file containing the comment
+     * @return a new GroupedComment
+     */
+    public static GroupedComment fromLexedComment(int startLine, int endLine, String content,
+                                                  boolean isBlockComment, FileStructure structure) {
+        final GroupedComment newComment = new GroupedComment();
+        newComment.startLine = startLine;
+        newComment.endLine = endLine;
+        newComment.comment = cleanComment(content);
+        newComment.commentType = newComment.comment.contains("{") || newComment.comment.contains(";") ? TYPE_COMMENTED_SOURCE
+                : isBlockComment ? TYPE_BLOCK
+                : TYPE_LINE;
+
+        newComment.setContainingDeclarations(structure);
+        return newComment;
+    }
+
+    /**
+     * Sets the containing class and method data of this comment, if found
+     * @param structure the classes and methods declared in the file containing the comment
+     */
+    private void setContainingDeclarations(FileStructure structure) {
+        final Optional<FileStructure.ClassSpan> classRoot =
+                structure.findContainingClass(this.startLine, this.endLine);
         if( classRoot.isPresent() ) {
             // Class Data
-            newComment.containingClass = classRoot
-                    .map(ClassOrInterfaceDeclaration::getFullyQualifiedName)
-                    .map(opt -> opt.orElse(UNKNOWN))
-                    .get();
-            final Range classRange = classRoot
-                    .map(ClassOrInterfaceDeclaration::getName)
-                    .map(Node::getRange)
-                    .get()
-                    .orElse(NULL_RANGE);
-            newComment.containingClassDeclarationLineStart = classRange.begin.line;
-            newComment.containingClassDeclarationLineEnd = classRange.end.line;
+            this.containingClass = classRoot.get().getFullyQualifiedName();
+            this.containingClassDeclarationLineStart = classRoot.get().getNameLine();
+            this.containingClassDeclarationLineEnd = classRoot.get().getNameLine();
 
             // Method Data
-            // We need to check for all comments between the end of the last comment
-            // and the end of the current comment. This is done to associate comments that
-            // are not inside the contents of a method with the method that they pertain to.
-
-            // Get all class variables
-            // TODO fix issue where class variables are defined after a method
-            final List<VariableDeclarator> variables = classRoot.get().findAll(VariableDeclarator.class).stream()
-                    .filter(varDec -> varDec.getParentNode().isPresent() &&
-                            varDec.getParentNode().get().getParentNode().isPresent() &&
-                            varDec.getParentNode().get().getParentNode().get() instanceof ClassOrInterfaceDeclaration)
-                    .collect(Collectors.toList());
-            final List<MethodDeclaration> allMethods = classRoot.get().findAll(MethodDeclaration.class).stream()
-                    .filter(dec -> dec.getRange().isPresent())
-                    .sorted(Comparator.comparingInt(x -> x.getRange().get().begin.line))
-                    .collect(Collectors.toList());
-
-            // The first method in the class can be assumed to begin after all class variables have
-            // been defined, so we start our bounds for the first method we search at the end of the
-            // final variable declaration
-            int lastMethodEnd = variables.stream()
-                    .filter(var -> var.getRange().isPresent())
-                    .map(var -> var.getRange().get().end.line)
-                    .max(Comparator.comparingInt(x -> x))
-                    .orElse(-1);
-            for (final MethodDeclaration curMethod : allMethods) {
-                final Range methodRangeIncludingProceeding = new Range(
-                        new Position(lastMethodEnd, 0),
-                        new Position(curMethod.getRange().get().end.line, 0));
-                // If the comment is within the bounds, then we can assume it related to this method
-                if (JavaParseUtil.isRangeBetweenBounds(
-                        methodRangeIncludingProceeding, newComment.startLine, newComment.endLine)) {
-                    newComment.containingMethod = curMethod
-                            .getDeclarationAsString(false, false, false);
-                    newComment.containingMethod = newComment.containingMethod
-                            .substring(newComment.containingMethod.indexOf(" ") + 1);
-                    newComment.containingMethodDeclarationLineStart = curMethod.asMethodDeclaration()
-                            .getRange().get().begin.line;
-                    newComment.containingMethodDeclarationLineEnd = curMethod.asMethodDeclaration()
-                            .getRange().get().end.line;
-                    break;
-                }
-                lastMethodEnd = curMethod.getRange().get().end.line;
+            final Optional<FileStructure.MethodSpan> method =
+                    classRoot.get().findContainingMethod(this.startLine, this.endLine);
+            if( method.isPresent() ) {
+                this.containingMethod = method.get().getDeclaration()
+                        .substring(method.get().getDeclaration().indexOf(" ") + 1);
+                this.containingMethodDeclarationLineStart = method.get().getStartLine();
+                this.containingMethodDeclarationLineEnd = method.get().getEndLine();
             }
-
         }
-        return newComment;
     }
 }
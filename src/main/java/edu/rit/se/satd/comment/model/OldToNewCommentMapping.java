@@ -4,6 +4,7 @@ package edu.rit.se.satd.comment.model;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.Value;
 
 /**
  * A mapping of old comments to new comments
@@ -44,10 +45,31 @@ public class OldToNewCommentMapping {
                 && this.duplicationId == other.duplicationId;
     }
 
+    /**
+     * @return a key which is equal for two mappings if, and only if, their comments match
+     * @see #commentsMatch(OldToNewCommentMapping)
+     */
+    public MatchKey getMatchKey() {
+        return new MatchKey(this.comment.getComment(), this.comment.getContainingMethod(),
+                this.comment.getContainingClass(), this.file, this.duplicationId);
+    }
+
     @Override
     public int hashCode() {
         return this.comment.hashCode() +
                 this.file.hashCode() +
                 this.duplicationId;
     }
+
+    /**
+     * The fields compared when determining if two mappings' comments match
+     */
+    @Value
+    public static class MatchKey {
+        private String comment;
+        private String containingMethod;
+        private String containingClass;
+        private String file;
+        private int duplicationId;
+    }
 }
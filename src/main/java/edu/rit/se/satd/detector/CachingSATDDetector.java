@@ -0,0 +1,199 @@
+package edu.rit.se.satd.detector;
+
+import lombok.AllArgsConstructor;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An SATDDetector which remembers the classification of every comment it has seen, and
+ * only delegates to the wrapped detector for comments it has not classified before.
+ *
+ * Comments are keyed on the SHA-1 of their normalized text, and the classifications can
+ * optionally be stored in a file so they are shared between runs and repositories.
+ * Classifications are only valid for the model that produced them, so the file should be
+ * discarded if the wrapped detector changes.
+ *
+ * At most a fixed number of classifications are held in memory, and the least recently used
+ * classification is forgotten to make room for a new one. Forgotten classifications remain in
+ * the store file, and are loaded again by the next run.
+ */
+public class CachingSATDDetector implements SATDDetector {
+
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    // The default number of classifications held in memory, roughly 100 bytes each
+    public static final int DEFAULT_MAX_ENTRIES = 500000;
+
+    private final SATDDetector detector;
+    private final File storeFile;
+    private final int maxEntries;
+
+    // Access-ordered so the eldest entry is always the least recently used
+    private final LinkedHashMap<ObjectId, Boolean> classifications =
+            new LinkedHashMap<ObjectId, Boolean>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ObjectId, Boolean> eldest) {
+                    if( this.size() > maxEntries ) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+    // Classifications made since the store was last written, which may already be evicted
+    private final ConcurrentLinkedQueue<Classification> unsavedClassifications = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingSATDDetector(SATDDetector detector) {
+        this(detector, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param detector the detector to classify comments that have not been seen before
+     * @param maxEntries the most classifications to hold in memory. A value of 0 disables caching.
+     */
+    public CachingSATDDetector(SATDDetector detector, int maxEntries) {
+        this.detector = detector;
+        this.storeFile = null;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param detector the detector to classify comments that have not been seen before
+     * @param storeFile a file to load classifications from and save new classifications to.
+     *                  It is created if it does not exist.
+     * @param maxEntries the most classifications to hold in memory. A value of 0 disables caching,
+     *                   but new classifications are still saved to the store file.
+     * @throws IOException thrown if the store file exists but could not be read
+     */
+    public CachingSATDDetector(SATDDetector detector, File storeFile, int maxEntries) throws IOException {
+        this.detector = detector;
+        this.storeFile = storeFile;
+        this.maxEntries = maxEntries;
+        if( storeFile.exists() ) {
+            this.loadStore();
+        }
+    }
+
+    @Override
+    public boolean isSATD(String satd) {
+        final ObjectId key = hashComment(satd);
+        synchronized (this.classifications) {
+            final Boolean cached = this.classifications.get(key);
+            if( cached != null ) {
+                this.hits.incrementAndGet();
+                return cached;
+            }
+        }
+        this.misses.incrementAndGet();
+        // Classify outside of the lock so other threads are not held up by this comment
+        final boolean isSATD = this.detector.isSATD(satd);
+        final boolean isNew;
+        synchronized (this.classifications) {
+            isNew = this.classifications.put(key, isSATD) == null;
+        }
+        if( isNew && this.storeFile != null ) {
+            this.unsavedClassifications.add(new Classification(key, isSATD));
+        }
+        return isSATD;
+    }
+
+    /**
+     * Appends all classifications made since the last flush to the store file, if one is used.
+     * Synchronized so that repositories finishing at once do not interleave their writes.
+     * @throws IOException thrown if the store file could not be written
+     */
+    public synchronized void flush() throws IOException {
+        if( this.storeFile == null || this.unsavedClassifications.isEmpty() ) {
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(this.storeFile, true))) {
+            Classification classification;
+            while( (classification = this.unsavedClassifications.poll()) != null ) {
+                writer.write(classification.key.name());
+                writer.write(' ');
+                writer.write(classification.isSATD ? '1' : '0');
+                writer.newLine();
+            }
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public double getHitRate() {
+        final long lookups = this.getHits() + this.getMisses();
+        return lookups > 0 ? (double) this.getHits() / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SATD classification cache: %,d hits, %,d misses (%.1f%% hit rate), %,d evictions",
+                this.getHits(), this.getMisses(), 100 * this.getHitRate(), this.getEvictions());
+    }
+
+    /**
+     * Loads the store file in the order it was written, so if it holds more classifications
+     * than fit in memory, the most recently made are kept
+     */
+    private void loadStore() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(this.storeFile))) {
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                final String[] entry = line.trim().split(" ");
+                // Skip any line left partially written by an interrupted run
+                if( entry.length == 2 && ObjectId.isId(entry[0]) ) {
+                    this.classifications.put(ObjectId.fromString(entry[0]), entry[1].equals("1"));
+                }
+            }
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Classification {
+        private final ObjectId key;
+        private final boolean isSATD;
+    }
+
+    /**
+     * Comments which differ only in surrounding or repeated whitespace are
+     * classified identically, so they share an entry in the cache
+     * @param comment a comment
+     * @return the key for the comment in the cache
+     */
+    private static ObjectId hashComment(String comment) {
+        final String normalized = comment.trim().replaceAll("\\s+", " ");
+        try {
+            return ObjectId.fromRaw(MessageDigest.getInstance(HASH_ALGORITHM)
+                    .digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
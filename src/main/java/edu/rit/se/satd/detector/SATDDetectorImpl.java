@@ -1,7 +1,12 @@
 package edu.rit.se.satd.detector;
 
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
 import satd_detector.core.utils.SATDDetector;
 
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
 /**
  * Maintains a wrapper implementation for the SATDDetector project:
  * https://github.com/Tbabm/SATDDetector-Core
@@ -9,14 +14,24 @@ import satd_detector.core.utils.SATDDetector;
 public class SATDDetectorImpl implements edu.rit.se.satd.detector.SATDDetector {
 
     // Wrapper implementation for this implementation
-    private SATDDetector detector;
-
-    public SATDDetectorImpl() {
-        this.detector = new SATDDetector();
-    }
+    // The wrapped classifier is not thread-safe and loads its model when created, so each
+    // classification borrows an idle classifier, and one is only created when none are idle.
+    // Only as many classifiers are created as classify at once, and they are reused by every
+    // thread of every pool rather than belonging to any one thread.
+    private final Deque<SATDDetector> idleDetectors = new ConcurrentLinkedDeque<>();
 
     @Override
     public boolean isSATD(String satd) {
-        return this.detector.isSATD(satd);
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.SATD_CLASSIFICATION) ) {
+            SATDDetector detector = this.idleDetectors.pollFirst();
+            if( detector == null ) {
+                detector = new SATDDetector();
+            }
+            try {
+                return detector.isSATD(satd);
+            } finally {
+                this.idleDetectors.offerFirst(detector);
+            }
+        }
     }
 }
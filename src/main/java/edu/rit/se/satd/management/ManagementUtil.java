@@ -0,0 +1,48 @@
+package edu.rit.se.satd.management;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Utility class for registering management beans with the platform MBean server
+ */
+public class ManagementUtil {
+
+    public static final String DOMAIN = "edu.rit.se.satd";
+
+    /**
+     * Registers a management bean for a repository. Failing to register only means the bean
+     * cannot be managed, so errors are reported but not thrown.
+     * @param type the type of bean, such as "Miner"
+     * @param repositoryName the name of the repository the bean belongs to
+     * @param bean the bean to register
+     * @return the name the bean was registered with, or null if it was not registered
+     */
+    public static ObjectName register(String type, String repositoryName, Object bean) {
+        try {
+            final ObjectName name = new ObjectName(String.format("%s:type=%s,repository=%s",
+                    DOMAIN, type, ObjectName.quote(repositoryName)));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, name);
+            return name;
+        } catch (JMException e) {
+            System.err.println("\nError registering " + type + " management bean for " + repositoryName +
+                    ": " + e.getLocalizedMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param name the name a bean was registered with, or null if it was not registered
+     */
+    public static void unregister(ObjectName name) {
+        if( name == null ) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("\nError unregistering management bean " + name + ": " + e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package edu.rit.se.satd.management;
+
+import java.io.IOException;
+
+/**
+ * The state of the queue of diffs waiting to be written for a repository
+ */
+public interface QueuedOutputWriterMXBean {
+
+    int getQueueSize();
+
+    int getQueueCapacity();
+
+    /**
+     * @return the number of diffs which have been queued but have not finished being written
+     */
+    int getPendingWrites();
+
+    int getWriterThreads();
+
+    long getDiffsWritten();
+
+    long getWriteFailures();
+
+    /**
+     * Waits for every queued diff to be written, and flushes the output. If diffs continue to
+     * be mined, the miner should be paused first.
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,79 @@
+package edu.rit.se.satd.management;
+
+import java.io.IOException;
+
+/**
+ * The progress and controls of a running SATDMiner, registered with the platform MBean
+ * server while its repository is mined so the miner can be watched and tuned with jconsole
+ * or another JMX client.
+ */
+public interface SATDMinerMXBean {
+
+    String getRepository();
+
+    /**
+     * @return the stage the miner is in, such as "Mining SATD"
+     */
+    String getStatus();
+
+    /**
+     * @return the diff or commit most recently mined
+     */
+    String getCurrentDiff();
+
+    int getDiffsPromised();
+
+    /**
+     * @return the number of mined diffs which have been written
+     */
+    int getDiffsWritten();
+
+    int getErrors();
+
+    /**
+     * @return the number of mined diffs waiting in the write queue
+     */
+    int getWriteQueueSize();
+
+    /**
+     * @return the number of diffs mined at once
+     */
+    int getThreads();
+
+    /**
+     * Changes the number of diffs mined at once, which takes effect before the next diff is mined
+     */
+    void setThreads(int nThreads);
+
+    boolean isPaused();
+
+    /**
+     * @return the hit rate of the cache of parsed comments shared by every miner, from 0 to 1
+     */
+    double getCommentCacheHitRate();
+
+    /**
+     * @return the hit rate of the miner's cache of SATD classifications from 0 to 1, or -1 if
+     * classifications are not cached
+     */
+    double getSatdCacheHitRate();
+
+    /**
+     * Stops mining new diffs once the diffs being mined are written, until resumed
+     */
+    void pause();
+
+    void resume();
+
+    /**
+     * Stores the miner's state once the diff being mined is written, as a periodic checkpoint
+     * would, so an interrupted run resumes from there
+     * @throws IllegalStateException thrown if the miner has no state file
+     */
+    void checkpoint();
+
+    /**
+     * Waits for every queued diff to be written, and flushes the output
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,22 @@
+package edu.rit.se.satd.metrics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A quantity counted while mining, which is not the number of times a stage ran
+ */
+@RequiredArgsConstructor
+public enum Count {
+    SATD_INSTANCES("satd_instances", "SATD instances mined"),
+    BLOB_BYTES("blob_bytes", "bytes of files read from the object store"),
+    PARSE_ERRORS("parse_errors", "files whose comments could not be parsed"),
+    WRITE_FAILURES("write_failures", "mined diffs which could not be written");
+
+    // The name of the count in exported metrics
+    @Getter
+    private final String metricName;
+
+    @Getter
+    private final String description;
+}
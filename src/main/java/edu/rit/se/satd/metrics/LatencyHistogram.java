@@ -0,0 +1,88 @@
+package edu.rit.se.satd.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations, with fixed buckets from 10 microseconds to 5 minutes. Durations
+ * may be recorded by any number of threads at once.
+ */
+public class LatencyHistogram {
+
+    // The inclusive upper bound of each bucket, in seconds. Durations longer than the last
+    // bound are only counted in the total.
+    static final double[] BUCKET_BOUNDS = {0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005,
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS.length];
+    static {
+        for( int i = 0; i < BUCKET_BOUNDS.length; i++ ) {
+            BUCKET_BOUNDS_NANOS[i] = Math.round(BUCKET_BOUNDS[i] * 1e9);
+        }
+    }
+
+    private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS.length);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while( bucket < BUCKET_BOUNDS_NANOS.length && nanos > BUCKET_BOUNDS_NANOS[bucket] ) {
+            bucket++;
+        }
+        if( bucket < BUCKET_BOUNDS_NANOS.length ) {
+            this.bucketCounts.incrementAndGet(bucket);
+        }
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public double getTotalSeconds() {
+        return this.totalNanos.sum() / 1e9;
+    }
+
+    public double getMaxSeconds() {
+        return this.maxNanos.get() / 1e9;
+    }
+
+    /**
+     * @param bucket the index of a bucket in BUCKET_BOUNDS
+     * @return the number of durations no longer than the bucket's bound
+     */
+    public long getCumulativeCount(int bucket) {
+        long cumulative = 0;
+        for( int i = 0; i <= bucket; i++ ) {
+            cumulative += this.bucketCounts.get(i);
+        }
+        return cumulative;
+    }
+
+    /**
+     * Estimates a percentile as the bound of the first bucket holding it, which is at most
+     * the longest duration recorded
+     * @param percentile the percentile to estimate, from 0 to 100
+     * @return the estimated duration in seconds, or 0 if nothing has been recorded
+     */
+    public double getPercentileSeconds(double percentile) {
+        final long nRecorded = this.getCount();
+        if( nRecorded == 0 ) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * nRecorded));
+        long cumulative = 0;
+        for( int i = 0; i < BUCKET_BOUNDS.length; i++ ) {
+            cumulative += this.bucketCounts.get(i);
+            if( cumulative >= rank ) {
+                return Math.min(BUCKET_BOUNDS[i], this.getMaxSeconds());
+            }
+        }
+        return this.getMaxSeconds();
+    }
+}
@@ -0,0 +1,217 @@
+package edu.rit.se.satd.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records the time spent in each stage of mining, and the quantities counted while mining,
+ * for each repository mined. Metrics are only recorded once enabled, so the stages are not
+ * timed unless the metrics will be output.
+ *
+ * The repository being mined is set for the thread mining it, and is inherited by any thread
+ * it starts, so the metrics of threads mining and writing a repository's diffs are recorded
+ * for that repository.
+ */
+public final class MinerMetrics {
+
+    public static final String PROMETHEUS_FILE_NAME = "satd-metrics.prom";
+    public static final String JSON_FILE_NAME = "satd-metrics.json";
+
+    private static final StageTimer NO_OP_TIMER = () -> {};
+
+    private static volatile boolean enabled = false;
+
+    // Every repository begun, in the order they were begun
+    private static final List<RepositoryMetrics> repositories = new ArrayList<>();
+
+    private static final InheritableThreadLocal<RepositoryMetrics> currentRepository = new InheritableThreadLocal<>();
+
+    private MinerMetrics() {}
+
+    public static void setEnabled(boolean enabled) {
+        MinerMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Begins recording metrics for a repository on the current thread, and any thread it starts
+     * @param repositoryName the name of the repository
+     */
+    public static void beginRepository(String repositoryName) {
+        if( !enabled ) {
+            return;
+        }
+        final RepositoryMetrics metrics = new RepositoryMetrics(repositoryName);
+        synchronized( repositories ) {
+            repositories.add(metrics);
+        }
+        currentRepository.set(metrics);
+    }
+
+    /**
+     * Stops recording metrics for the current thread's repository
+     */
+    public static void endRepository() {
+        currentRepository.remove();
+    }
+
+    /**
+     * Starts timing a stage, which is recorded once the returned timer is closed.
+     * @param stage the stage to time
+     * @return a timer to close once the stage is complete
+     */
+    public static StageTimer time(Stage stage) {
+        if( !enabled ) {
+            return NO_OP_TIMER;
+        }
+        final RepositoryMetrics metrics = currentRepository.get();
+        if( metrics == null ) {
+            return NO_OP_TIMER;
+        }
+        final long start = System.nanoTime();
+        return () -> metrics.record(stage, System.nanoTime() - start);
+    }
+
+    public static void count(Count count, long amount) {
+        if( !enabled ) {
+            return;
+        }
+        final RepositoryMetrics metrics = currentRepository.get();
+        if( metrics != null ) {
+            metrics.add(count, amount);
+        }
+    }
+
+    /**
+     * Writes the metrics of every repository to the given directory, in both the Prometheus
+     * text format and as a JSON summary
+     * @param directory the directory to write the metrics to, which is created if needed
+     */
+    public static void write(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        try( PrintWriter prometheus = new PrintWriter(Files.newBufferedWriter(
+                new File(directory, PROMETHEUS_FILE_NAME).toPath(), StandardCharsets.UTF_8)) ) {
+            writePrometheus(prometheus);
+        }
+        try( PrintWriter json = new PrintWriter(Files.newBufferedWriter(
+                new File(directory, JSON_FILE_NAME).toPath(), StandardCharsets.UTF_8)) ) {
+            writeJson(json);
+        }
+    }
+
+    /**
+     * Writes the metrics of every repository in the Prometheus text exposition format, such
+     * that the file can be collected by the node exporter's textfile collector
+     */
+    public static void writePrometheus(Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        final List<RepositoryMetrics> metrics = getRepositories();
+        out.println("# HELP satd_stage_seconds Time spent in each stage of mining a repository");
+        out.println("# TYPE satd_stage_seconds histogram");
+        for( final RepositoryMetrics repository : metrics ) {
+            for( final Stage stage : Stage.values() ) {
+                final LatencyHistogram histogram = repository.getHistogram(stage);
+                final String labels = String.format("repository=\"%s\",stage=\"%s\"",
+                        escape(repository.getRepositoryName()), stage.getMetricName());
+                for( int i = 0; i < LatencyHistogram.BUCKET_BOUNDS.length; i++ ) {
+                    out.printf(Locale.ROOT, "satd_stage_seconds_bucket{%s,le=\"%s\"} %d%n", labels,
+                            formatDouble(LatencyHistogram.BUCKET_BOUNDS[i]), histogram.getCumulativeCount(i));
+                }
+                out.printf(Locale.ROOT, "satd_stage_seconds_bucket{%s,le=\"+Inf\"} %d%n",
+                        labels, histogram.getCount());
+                out.printf(Locale.ROOT, "satd_stage_seconds_sum{%s} %s%n",
+                        labels, formatDouble(histogram.getTotalSeconds()));
+                out.printf(Locale.ROOT, "satd_stage_seconds_count{%s} %d%n", labels, histogram.getCount());
+            }
+        }
+        out.println("# HELP satd_events_total Quantities counted while mining a repository");
+        out.println("# TYPE satd_events_total counter");
+        for( final RepositoryMetrics repository : metrics ) {
+            for( final Count count : Count.values() ) {
+                out.printf(Locale.ROOT, "satd_events_total{repository=\"%s\",event=\"%s\"} %d%n",
+                        escape(repository.getRepositoryName()), count.getMetricName(),
+                        repository.getCount(count));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes a summary of the metrics of every repository as JSON. The percentiles of each
+     * stage are estimated from the buckets of its histogram.
+     */
+    public static void writeJson(Writer writer) {
+        final PrintWriter out = new PrintWriter(writer);
+        final List<RepositoryMetrics> metrics = getRepositories();
+        out.println("{");
+        out.println("  \"repositories\": [");
+        for( int r = 0; r < metrics.size(); r++ ) {
+            final RepositoryMetrics repository = metrics.get(r);
+            out.println("    {");
+            out.printf("      \"name\": \"%s\",%n", escape(repository.getRepositoryName()));
+            out.println("      \"stages\": {");
+            final Stage[] stages = Stage.values();
+            for( int s = 0; s < stages.length; s++ ) {
+                final LatencyHistogram histogram = repository.getHistogram(stages[s]);
+                out.printf(Locale.ROOT, "        \"%s\": {\"count\": %d, \"totalSeconds\": %s, " +
+                                "\"meanSeconds\": %s, \"p50Seconds\": %s, \"p99Seconds\": %s, \"maxSeconds\": %s}%s%n",
+                        stages[s].getMetricName(), histogram.getCount(),
+                        formatDouble(histogram.getTotalSeconds()),
+                        formatDouble(histogram.getCount() == 0 ? 0 : histogram.getTotalSeconds() / histogram.getCount()),
+                        formatDouble(histogram.getPercentileSeconds(50)),
+                        formatDouble(histogram.getPercentileSeconds(99)),
+                        formatDouble(histogram.getMaxSeconds()),
+                        s < stages.length - 1 ? "," : "");
+            }
+            out.println("      },");
+            out.println("      \"counts\": {");
+            final Count[] counts = Count.values();
+            for( int c = 0; c < counts.length; c++ ) {
+                out.printf("        \"%s\": %d%s%n", counts[c].getMetricName(), repository.getCount(counts[c]),
+                        c < counts.length - 1 ? "," : "");
+            }
+            out.println("      }");
+            out.println(r < metrics.size() - 1 ? "    }," : "    }");
+        }
+        out.println("  ]");
+        out.println("}");
+        out.flush();
+    }
+
+    /**
+     * @return the metrics of every repository begun, in the order they were begun
+     */
+    public static List<RepositoryMetrics> getRepositories() {
+        synchronized( repositories ) {
+            return new ArrayList<>(repositories);
+        }
+    }
+
+    private static String formatDouble(double value) {
+        return String.format(Locale.ROOT, "%.9g", value).replaceAll("\\.?0+(e|$)", "$1");
+    }
+
+    // Label values and JSON strings escape the same characters
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Records the time taken by a stage once closed
+     */
+    public interface StageTimer extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
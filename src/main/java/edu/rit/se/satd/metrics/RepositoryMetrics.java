@@ -0,0 +1,46 @@
+package edu.rit.se.satd.metrics;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time spent in each stage of mining a repository, and the quantities counted while mining it
+ */
+public class RepositoryMetrics {
+
+    @Getter
+    private final String repositoryName;
+
+    // Both maps hold every stage and count, so they are never modified once created
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Count, LongAdder> counts = new EnumMap<>(Count.class);
+
+    public RepositoryMetrics(String repositoryName) {
+        this.repositoryName = repositoryName;
+        for( final Stage stage : Stage.values() ) {
+            this.stages.put(stage, new LatencyHistogram());
+        }
+        for( final Count count : Count.values() ) {
+            this.counts.put(count, new LongAdder());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        this.stages.get(stage).record(nanos);
+    }
+
+    public void add(Count count, long amount) {
+        this.counts.get(count).add(amount);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return this.stages.get(stage);
+    }
+
+    public long getCount(Count count) {
+        return this.counts.get(count).sum();
+    }
+}
@@ -0,0 +1,30 @@
+package edu.rit.se.satd.metrics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A stage of the mining pipeline whose time is measured
+ */
+@RequiredArgsConstructor
+public enum Stage {
+    CLONE("clone", "cloning, fetching or opening the repository"),
+    COMMIT_WALK("commit_walk", "walking the commit graph to find the commits to mine"),
+    DIFF_ENTRIES("diff_entries", "finding the files changed between two commits"),
+    RENAME_DETECTION("rename_detection", "detecting the renamed files between two commits"),
+    DIFF_MINING("diff_mining", "mining the SATD changed by one diff"),
+    BLOB_LOAD("blob_load", "reading a file from the object store"),
+    COMMENT_PARSE("comment_parse", "parsing the comments in a file"),
+    SATD_CLASSIFICATION("satd_classification", "classifying a comment as SATD or not"),
+    MAPPING_ALIGNMENT("mapping_alignment", "aligning the SATD before and after a diff"),
+    EDITS("edits", "computing the edits made to a file"),
+    SIMILARITY("similarity", "comparing the similarity of two comments"),
+    WRITE("write", "writing a mined diff to the output");
+
+    // The name of the stage in exported metrics
+    @Getter
+    private final String metricName;
+
+    @Getter
+    private final String description;
+}
@@ -0,0 +1,44 @@
+package edu.rit.se.satd.mining;
+
+import edu.rit.se.util.JavaParseUtil;
+import edu.rit.se.util.SimilarityUtil;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+
+import java.util.Set;
+
+/**
+ * The settings used when mining SATD from a repository. Configurations are immutable, so a
+ * single configuration can be shared by every repository mined in a run, including
+ * repositories that are mined at the same time.
+ */
+@Value
+@Builder
+public class MinerConfiguration {
+
+    // The algorithm used to find the edits made to each file in a diff
+    @NonNull
+    @Builder.Default
+    DiffAlgorithm diffAlgorithm = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.MYERS);
+
+    // The parser used to find the comments in each java file
+    @NonNull
+    @Builder.Default
+    JavaParseUtil.CommentParser commentParser = JavaParseUtil.CommentParser.JAVAPARSER;
+
+    // The normalized levenshtein distance two comments must be within for one to be
+    // considered a modification of the other
+    @Builder.Default
+    double levenshteinDistanceMin = SimilarityUtil.DEFAULT_LEVENSHTEIN_DISTANCE_MIN;
+
+    // Comments containing any of these words are ignored
+    @Singular
+    Set<String> ignorableWords;
+
+    // True if errors encountered while associating SATD instances should be printed
+    @Builder.Default
+    boolean errorOutputEnabled = true;
+}
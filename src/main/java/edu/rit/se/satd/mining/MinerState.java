@@ -0,0 +1,126 @@
+package edu.rit.se.satd.mining;
+
+import edu.rit.se.satd.model.SATDInstanceInFile;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The state of a miner once it has mined a repository up to a head commit. Storing the state
+ * allows a later run to mine only the commits made since that head, while continuing the
+ * satd_instance_id chains of the SATD instances which were still present.
+ *
+ * A state may also be a checkpoint taken part way through mining a head commit, in which case
+ * a later run resumes mining that head from the first diff which had not been written.
+ */
+public class MinerState implements Serializable {
+
+    private static final long serialVersionUID = 2L;
+
+    // The most recent commit whose history has been completely mined, or null if none has been
+    @Getter
+    private final String headCommit;
+
+    // The commit being mined when the checkpoint was taken, or null if this is not a checkpoint
+    @Getter
+    private final String checkpointCommit;
+
+    // The number of diffs leading to the checkpoint commit which had been written
+    @Getter
+    private final int nDiffsWritten;
+
+    // The last SATD ID assigned
+    @Getter
+    private final int curSATDId;
+
+    // The ID of every SATD instance present at the head commit, or on any other mined branch
+    @Getter
+    private final HashMap<SATDInstanceInFile, Integer> satdInstanceMappings;
+
+    /**
+     * Creates the state of a miner which has finished mining a head commit
+     */
+    public MinerState(@NonNull String headCommit, int curSATDId,
+                      @NonNull Map<SATDInstanceInFile, Integer> satdInstanceMappings) {
+        this(headCommit, null, 0, curSATDId, satdInstanceMappings);
+    }
+
+    /**
+     * Creates a checkpoint of a miner part way through mining a head commit
+     * @param headCommit the head commit mined by a previous run, or null if there was none
+     * @param checkpointCommit the head commit being mined
+     * @param nDiffsWritten the number of diffs leading to the checkpoint commit which have been
+     *                      written. The ID map must be the one produced by mining them.
+     * @param curSATDId the last SATD ID assigned
+     * @param satdInstanceMappings the IDs of the SATD instances found so far
+     */
+    public MinerState(String headCommit, String checkpointCommit, int nDiffsWritten, int curSATDId,
+                      @NonNull Map<SATDInstanceInFile, Integer> satdInstanceMappings) {
+        this.headCommit = headCommit;
+        this.checkpointCommit = checkpointCommit;
+        this.nDiffsWritten = nDiffsWritten;
+        this.curSATDId = curSATDId;
+        // Copied so the stored state is not changed by further mining
+        this.satdInstanceMappings = new HashMap<>(satdInstanceMappings);
+    }
+
+    public boolean isCheckpoint() {
+        return this.checkpointCommit != null;
+    }
+
+    /**
+     * @param stateFile a file written by save
+     * @return the state stored in the file
+     * @throws IOException thrown if the file could not be read, or was not written by save
+     */
+    public static MinerState load(File stateFile) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(new FileInputStream(stateFile))))) {
+            final Object state = in.readObject();
+            if( !(state instanceof MinerState) ) {
+                throw new InvalidObjectException("Not a miner state: " + stateFile);
+            }
+            return (MinerState) state;
+        } catch (ClassNotFoundException e) {
+            throw new InvalidObjectException("Not a miner state: " + stateFile);
+        }
+    }
+
+    /**
+     * Writes the state to the given file. The state is written to a temporary file first, so
+     * the previous state is kept if the write is interrupted.
+     * @param stateFile the file to store the state in
+     * @throws IOException thrown if the file could not be written
+     */
+    public void save(File stateFile) throws IOException {
+        final File tempFile = new File(stateFile.getPath() + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tempFile))))) {
+            out.writeObject(this);
+        }
+        // Make sure the state is on disk before it replaces the previous state
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempFile.toPath(), stateFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
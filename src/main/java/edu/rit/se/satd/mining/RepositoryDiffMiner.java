@@ -4,6 +4,8 @@ import edu.rit.se.git.RepositoryCommitReference;
 import edu.rit.se.satd.comment.model.OldToNewCommentMapping;
 import edu.rit.se.satd.comment.model.RepositoryComments;
 import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
 import edu.rit.se.satd.mining.diff.CommitToCommitDiff;
 import edu.rit.se.satd.model.SATDDifference;
 import edu.rit.se.satd.model.SATDInstance;
@@ -28,6 +30,8 @@ public class RepositoryDiffMiner {
     private RepositoryCommitReference secondRepo;
     @NonNull
     private SATDDetector satdDetector;
+    @NonNull
+    private MinerConfiguration config;
 
     /**
      * Mines the differences in SATD between the two repositories set during generation
@@ -38,6 +42,12 @@ public class RepositoryDiffMiner {
      * configured before running
      */
     public SATDDifference mineDiff() {
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.DIFF_MINING) ) {
+            return this.mineSATDDifference();
+        }
+    }
+
+    private SATDDifference mineSATDDifference() {
         final SATDDifference diff = new SATDDifference(
                 this.secondRepo.getProjectName(),
                 this.secondRepo.getProjectURI(),
@@ -46,13 +56,13 @@ public class RepositoryDiffMiner {
 
         // Load the diffs between versions
         final CommitToCommitDiff cToCDiff = new CommitToCommitDiff(
-                this.firstRepo, this.secondRepo, this.satdDetector);
+                this.firstRepo, this.secondRepo, this.satdDetector, this.config);
 
         // Get the SATD occurrences for each repo
         final Map<String, RepositoryComments> newerSATD = this.secondRepo.getFilesToSATDOccurrences(
-                this.satdDetector, cToCDiff.getModifiedFilesNew());
+                this.satdDetector, cToCDiff.getModifiedFilesNew(), this.config);
         final Map<String, RepositoryComments> olderSATD = this.firstRepo.getFilesToSATDOccurrences(
-                this.satdDetector, cToCDiff.getModifiedFilesOld());
+                this.satdDetector, cToCDiff.getModifiedFilesOld(), this.config);
 
         // Get a list of all SATD instances as a mappable instance
         final List<OldToNewCommentMapping> oldSATDMappings = olderSATD.keySet().stream()
@@ -65,7 +75,7 @@ public class RepositoryDiffMiner {
                         .map(comment -> new OldToNewCommentMapping(comment, newFile)))
                 .collect(Collectors.toList());
         populateDuplicationIds(newSATDMappings);
-        final List<String> erroredFiles = new ArrayList<>();
+        final Set<String> erroredFiles = new HashSet<>();
         // Add errored files to known errors
         erroredFiles.addAll(newerSATD.values().stream()
                 .map(RepositoryComments::getParseErrorFiles)
@@ -78,17 +88,21 @@ public class RepositoryDiffMiner {
 
         // Map the new to old and then old to new (done later), so we can determine which SATD instances
         // may have changed
-        alignMappingLists(oldSATDMappings, newSATDMappings, erroredFiles);
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.MAPPING_ALIGNMENT) ) {
+            alignMappingLists(oldSATDMappings, newSATDMappings, erroredFiles);
+        }
 
         // Get all instances that can be mined from the old repository's mapping data
         final List<SATDInstance> oldInstances =
                 mineDiffsFromMappedSATDInstances(cToCDiff, oldSATDMappings, true);
         // Use the new instance to avoid double-detecting instances that may not have
         // been mapped on the first pass through
-        alignMappingLists(newSATDMappings, oldInstances.stream()
-                .map(SATDInstance::getNewInstance)
-                .map(ni -> new OldToNewCommentMapping(ni.getComment(), ni.getFileName()))
-                .collect(Collectors.toList()), erroredFiles);
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.MAPPING_ALIGNMENT) ) {
+            alignMappingLists(newSATDMappings, oldInstances.stream()
+                    .map(SATDInstance::getNewInstance)
+                    .map(ni -> new OldToNewCommentMapping(ni.getComment(), ni.getFileName()))
+                    .collect(Collectors.toList()), erroredFiles);
+        }
         // Add SATD instances that were in the NEW repo, but couldn't be mapped to the OLD repo
         final List<SATDInstance> newInstances =
                 mineDiffsFromMappedSATDInstances(cToCDiff, newSATDMappings, false);
@@ -100,15 +114,22 @@ public class RepositoryDiffMiner {
         return diff;
     }
 
-    private static void alignMappingLists(List<OldToNewCommentMapping> list1, List<OldToNewCommentMapping> list2,
-                                          List<String> erroredFiles) {
-        list1.forEach(mappedComment ->
-                list2.stream()
-                        .filter(OldToNewCommentMapping::isNotMapped)
-                        .filter(mappedComment::commentsMatch)
-                        .findFirst()
-                        .ifPresent(mappedComment::mapTo)
-        );
+    static void alignMappingLists(List<OldToNewCommentMapping> list1, List<OldToNewCommentMapping> list2,
+                                          Set<String> erroredFiles) {
+        // Index the unmapped comments in list2 by the fields they are matched on. Each queue keeps
+        // the order of list2, so every comment in list1 is still mapped to its first match.
+        final Map<OldToNewCommentMapping.MatchKey, Queue<OldToNewCommentMapping>> unmappedByKey = new HashMap<>();
+        list2.stream()
+                .filter(OldToNewCommentMapping::isNotMapped)
+                .forEach(mapping -> unmappedByKey
+                        .computeIfAbsent(mapping.getMatchKey(), key -> new ArrayDeque<>())
+                        .add(mapping));
+        list1.forEach(mappedComment -> {
+            final Queue<OldToNewCommentMapping> matches = unmappedByKey.get(mappedComment.getMatchKey());
+            if( matches != null && !matches.isEmpty() ) {
+                mappedComment.mapTo(matches.remove());
+            }
+        });
         list1.stream()
                 .filter(c -> erroredFiles.contains(c.getFile()))
                 .forEach(c -> c.mapTo(null));
@@ -132,7 +153,7 @@ public class RepositoryDiffMiner {
                         .collect(Collectors.toList());
     }
 
-    private static void populateDuplicationIds(List<OldToNewCommentMapping> mappingList) {
+    static void populateDuplicationIds(List<OldToNewCommentMapping> mappingList) {
         final Map<OldToNewCommentMapping, Integer> curDupIds = new HashMap<>();
         mappingList.forEach(mapping -> {
             if( !curDupIds.containsKey(mapping) ) {
@@ -1,68 +1,151 @@
 package edu.rit.se.satd.mining.diff;
 
 import edu.rit.se.git.GitUtil;
+import edu.rit.se.git.IndexedEditList;
 import edu.rit.se.git.RepositoryCommitReference;
 import edu.rit.se.satd.comment.model.GroupedComment;
 import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
+import edu.rit.se.satd.mining.MinerConfiguration;
 import edu.rit.se.satd.model.SATDInstance;
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class CommitToCommitDiff {
 
     private final Git gitInstance;
-    private final RevCommit newCommit;
     private final List<DiffEntry> diffEntries;
     private final SATDDetector detector;
+    private final MinerConfiguration config;
 
-    public static DiffAlgorithm diffAlgo = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.MYERS);
+    // Diff entries indexed by the path of the file on each side of the diff
+    private final Map<String, List<DiffEntry>> entriesByOldPath;
+    private final Map<String, List<DiffEntry>> entriesByNewPath;
 
-    public CommitToCommitDiff(RepositoryCommitReference oldRepo,
-                              RepositoryCommitReference newRepo, SATDDetector detector) {
+    private final OldFileDifferencer oldFileDifferencer;
+    private final NewFileDifferencer newFileDifferencer;
+
+    // Edits are only needed for entries that contain SATD, so each entry's edits are
+    // computed the first time they are requested and shared by every comment in the file
+    private final Map<DiffEntry, IndexedEditList> editsByEntry = new HashMap<>();
+    private DiffFormatter formatter = null;
+
+    public CommitToCommitDiff(RepositoryCommitReference oldRepo, RepositoryCommitReference newRepo,
+                              SATDDetector detector, MinerConfiguration config) {
         this.gitInstance = newRepo.getGitInstance();
-        this.newCommit = newRepo.getCommit();
-        this.diffEntries = GitUtil.getDiffEntries(this.gitInstance, oldRepo.getCommit(), this.newCommit)
+        this.diffEntries = GitUtil.getDiffEntries(this.gitInstance, oldRepo.getCommit(), newRepo.getCommit())
                 .stream()
                 .filter(diffEntry -> diffEntry.getOldPath().endsWith(".java") || diffEntry.getNewPath().endsWith(".java"))
                 .collect(Collectors.toList());
         this.detector = detector;
+        this.config = config;
+        this.entriesByOldPath = indexByPath(this.diffEntries, DiffEntry::getOldPath);
+        this.entriesByNewPath = indexByPath(this.diffEntries, DiffEntry::getNewPath);
+        this.oldFileDifferencer = new OldFileDifferencer(
+                this.gitInstance, this, this.config, this.detector, this.diffEntries);
+        this.newFileDifferencer = new NewFileDifferencer(this.gitInstance, this, this.config);
     }
 
-    public List<String> getModifiedFilesNew() {
-        return this.diffEntries.stream()
-                .map(DiffEntry::getNewPath)
-                .collect(Collectors.toList());
+    /**
+     * @return the blob of each Java file modified in the new commit, keyed by the file's path
+     */
+    public Map<String, ObjectId> getModifiedFilesNew() {
+        return getBlobsByPath(this.entriesByNewPath, DiffEntry::getNewId);
     }
 
-    public List<String> getModifiedFilesOld() {
-        return this.diffEntries.stream()
-                .map(DiffEntry::getOldPath)
-                .collect(Collectors.toList());
+    /**
+     * @return the blob of each Java file modified from the old commit, keyed by the file's path
+     */
+    public Map<String, ObjectId> getModifiedFilesOld() {
+        return getBlobsByPath(this.entriesByOldPath, DiffEntry::getOldId);
     }
 
     public List<SATDInstance> loadDiffsForOldFile(String oldFile, GroupedComment comment) {
-        return this.loadDiffsForFile(oldFile, comment,
-                new OldFileDifferencer(this.gitInstance, this.newCommit, this.detector, this.diffEntries));
+        return this.loadDiffsForFile(this.entriesByOldPath, oldFile, comment, this.oldFileDifferencer);
 
     }
 
     public List<SATDInstance> loadDiffsForNewFile(String newFile, GroupedComment comment) {
-        return this.loadDiffsForFile(newFile, comment, new NewFileDifferencer(this.gitInstance));
+        return this.loadDiffsForFile(this.entriesByNewPath, newFile, comment, this.newFileDifferencer);
     }
 
-    private List<SATDInstance> loadDiffsForFile(String file, GroupedComment comment, FileDifferencer differ) {
-        return this.diffEntries.stream()
-                .filter(entry -> differ.getPertinentFilePath(entry).equals(file))
+    private List<SATDInstance> loadDiffsForFile(Map<String, List<DiffEntry>> entriesByPath, String file,
+                                                GroupedComment comment, FileDifferencer differ) {
+        return entriesByPath.getOrDefault(file, Collections.emptyList()).stream()
                 .map(diffEntry -> differ.getInstancesFromFile(diffEntry, comment))
                 .flatMap(Collection::stream)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Groups diff entries by one of their paths, maintaining the order of the entries
+     * @param entries a list of diff entries
+     * @param getPath a function to get the path to index each entry by
+     * @return a map of paths to all entries with that path
+     */
+    private static Map<String, List<DiffEntry>> indexByPath(List<DiffEntry> entries,
+                                                            Function<DiffEntry, String> getPath) {
+        final Map<String, List<DiffEntry>> entriesByPath = new LinkedHashMap<>();
+        entries.forEach(entry -> entriesByPath.computeIfAbsent(getPath.apply(entry), p -> new ArrayList<>())
+                .add(entry));
+        return entriesByPath;
+    }
+
+    /**
+     * Gets the blob on one side of the diff for each Java file, so it can be read without
+     * searching the commit's tree. Entries for paths that do not exist on that side are skipped.
+     * @param entriesByPath diff entries indexed by the path of the file on one side of the diff
+     * @param getId a function to get the ID of the blob on the same side of the diff
+     * @return a map of paths to the ID of the blob at that path
+     */
+    private static Map<String, ObjectId> getBlobsByPath(Map<String, List<DiffEntry>> entriesByPath,
+                                                        Function<DiffEntry, AbbreviatedObjectId> getId) {
+        final Map<String, ObjectId> blobsByPath = new LinkedHashMap<>();
+        entriesByPath.forEach((path, entries) -> {
+            final AbbreviatedObjectId id = getId.apply(entries.get(0));
+            if( path.endsWith(".java") && id.isComplete() && !id.toObjectId().equals(ObjectId.zeroId()) ) {
+                blobsByPath.put(path, id.toObjectId());
+            }
+        });
+        return Collections.unmodifiableMap(blobsByPath);
+    }
+
+    /**
+     * @param entry a diff entry from this diff
+     * @return the edits made to the file in the diff entry
+     */
+    IndexedEditList getEdits(DiffEntry entry) {
+        return this.editsByEntry.computeIfAbsent(entry, this::computeEdits);
+    }
+
+    private IndexedEditList computeEdits(DiffEntry entry) {
+        if( this.formatter == null ) {
+            this.formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+            this.formatter.setRepository(this.gitInstance.getRepository());
+            this.formatter.setContext(0);
+            this.formatter.setDiffAlgorithm(this.config.getDiffAlgorithm());
+        }
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.EDITS) ) {
+            return new IndexedEditList(this.formatter.toFileHeader(entry).toEditList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,16 +1,13 @@
 package edu.rit.se.satd.mining.diff;
 
+import edu.rit.se.git.IndexedEditList;
 import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.mining.MinerConfiguration;
 import edu.rit.se.satd.model.SATDInstance;
 import lombok.AllArgsConstructor;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
-import org.eclipse.jgit.diff.Edit;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -21,20 +18,14 @@ public abstract class FileDifferencer {
 
     protected Git gitInstance;
 
+    // The diff which the entries being differenced belong to
+    private CommitToCommitDiff commitDiff;
+
+    protected MinerConfiguration config;
+
     public abstract List<SATDInstance> getInstancesFromFile(DiffEntry d, GroupedComment c);
 
-    List<Edit> getEdits(DiffEntry entry) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        DiffFormatter formatter = new DiffFormatter(outputStream);
-        formatter.setRepository(this.gitInstance.getRepository());
-        formatter.setContext(0);
-        formatter.setDiffAlgorithm(CommitToCommitDiff.diffAlgo);
-        try {
-            return formatter.toFileHeader(entry).toEditList();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+    IndexedEditList getEdits(DiffEntry entry) {
+        return this.commitDiff.getEdits(entry);
     }
-
-    public abstract String getPertinentFilePath(DiffEntry entry);
 }
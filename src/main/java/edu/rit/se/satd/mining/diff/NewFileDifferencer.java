@@ -1,8 +1,8 @@
 package edu.rit.se.satd.mining.diff;
 
-import edu.rit.se.git.GitUtil;
 import edu.rit.se.satd.comment.model.GroupedComment;
 import edu.rit.se.satd.comment.model.NullGroupedComment;
+import edu.rit.se.satd.mining.MinerConfiguration;
 import edu.rit.se.satd.model.SATDInstance;
 import edu.rit.se.satd.model.SATDInstanceInFile;
 import org.eclipse.jgit.api.Git;
@@ -15,13 +15,8 @@ import static org.eclipse.jgit.diff.DiffEntry.DEV_NULL;
 
 public class NewFileDifferencer extends FileDifferencer {
 
-    NewFileDifferencer(Git gitInstance) {
-        super(gitInstance);
-    }
-
-    @Override
-    public String getPertinentFilePath(DiffEntry entry) {
-        return entry.getNewPath();
+    NewFileDifferencer(Git gitInstance, CommitToCommitDiff commitDiff, MinerConfiguration config) {
+        super(gitInstance, commitDiff, config);
     }
 
     @Override
@@ -40,18 +35,15 @@ public class NewFileDifferencer extends FileDifferencer {
                 break;
             case MODIFY: case RENAME: case COPY:
                 // Determine if the edit to the file touched the SATD
-                this.getEdits(diffEntry).stream()
-                        .filter(edit -> GitUtil.editOccursInNewFileBetween(
-                                edit, newComment.getStartLine(), newComment.getEndLine()))
-                        .findAny()
-                        .ifPresent(edit ->
-                                satd.add(
-                                        new SATDInstance(
-                                                new SATDInstanceInFile(DEV_NULL, new NullGroupedComment()),
-                                                new SATDInstanceInFile(diffEntry.getNewPath(), newComment),
-                                                SATDInstance.SATDResolution.SATD_ADDED
-                                        ))
-                        );
+                if( this.getEdits(diffEntry).anyEditInNewFileBetween(
+                        newComment.getStartLine(), newComment.getEndLine()) ) {
+                    satd.add(
+                            new SATDInstance(
+                                    new SATDInstanceInFile(DEV_NULL, new NullGroupedComment()),
+                                    new SATDInstanceInFile(diffEntry.getNewPath(), newComment),
+                                    SATDInstance.SATDResolution.SATD_ADDED
+                            ));
+                }
                 break;
         }
 
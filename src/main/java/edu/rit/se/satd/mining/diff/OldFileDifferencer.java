@@ -1,27 +1,29 @@
 package edu.rit.se.satd.mining.diff;
 
 import edu.rit.se.git.GitUtil;
+import edu.rit.se.git.IndexedEditList;
 import edu.rit.se.satd.comment.model.GroupedComment;
 import edu.rit.se.satd.comment.model.NullGroupedComment;
 import edu.rit.se.satd.comment.model.RepositoryComments;
 import edu.rit.se.satd.detector.SATDDetector;
+import edu.rit.se.satd.mining.MinerConfiguration;
 import edu.rit.se.satd.model.SATDInstance;
 import edu.rit.se.satd.model.SATDInstanceInFile;
 import edu.rit.se.util.JavaParseUtil;
 import edu.rit.se.util.KnownParserException;
 import edu.rit.se.util.SimilarityUtil;
-import javafx.util.Pair;
+import lombok.Value;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.treewalk.TreeWalk;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,15 +31,17 @@ import static edu.rit.se.satd.comment.model.NullGroupedComment.NULL_FIELD;
 
 public class OldFileDifferencer extends FileDifferencer {
 
-    private final RevCommit newCommit;
-
     private final SATDDetector detector;
 
     private final List<DiffEntry> otherDiffEntries;
 
-    OldFileDifferencer(Git gitInstance, RevCommit newCommit, SATDDetector detector, List<DiffEntry> otherDiffEntries) {
-        super(gitInstance);
-        this.newCommit = newCommit;
+    // The comments in the new version of every file in the diff, keyed by their text. Built the
+    // first time a removed comment is searched for in the other files of the diff
+    private Map<String, List<IndexedComment>> newCommentIndex = null;
+
+    OldFileDifferencer(Git gitInstance, CommitToCommitDiff commitDiff, MinerConfiguration config,
+                       SATDDetector detector, List<DiffEntry> otherDiffEntries) {
+        super(gitInstance, commitDiff, config);
         this.detector = detector;
         // Remove all entries that detail removed files --
         //   We won't need to look through these for changed comments
@@ -46,11 +50,6 @@ public class OldFileDifferencer extends FileDifferencer {
                 .collect(Collectors.toList());
     }
 
-    @Override
-    public String getPertinentFilePath(DiffEntry entry) {
-        return entry.getOldPath();
-    }
-
     @Override
     public List<SATDInstance> getInstancesFromFile(DiffEntry diffEntry, GroupedComment oldComment) {
         final List<SATDInstance> satd = new ArrayList<>();
@@ -58,7 +57,7 @@ public class OldFileDifferencer extends FileDifferencer {
         switch (diffEntry.getChangeType()) {
             case RENAME:
                 final RepositoryComments comInNewRepository =
-                        this.getCommentsInFileInNewRepository(diffEntry.getNewPath());
+                        this.getCommentsInFileInNewRepository(diffEntry);
                 final GroupedComment newComment = comInNewRepository.getComments().stream()
                         .filter(nc -> nc.getComment().equals(oldComment.getComment()))
                         .filter(nc -> nc.getContainingMethod().equals(oldComment.getContainingMethod()))
@@ -85,13 +84,12 @@ public class OldFileDifferencer extends FileDifferencer {
                 break;
             case MODIFY:
                 // get the edits to the file, and the deletions to the SATD we're concerned about
-                final List<Edit> editsToFile = this.getEdits(diffEntry);
-                final List<Edit> editsToSATDComment = editsToFile.stream()
-                        .filter(edit -> editImpactedComment(edit, oldComment, 0, true))
-                        .collect(Collectors.toList());
+                final IndexedEditList editsToFile = this.getEdits(diffEntry);
+                final List<Edit> editsToSATDComment = editsToFile.editsInOldFileBetween(
+                        oldComment.getStartLine(), oldComment.getEndLine());
                 // Find the comments in the new repository version
                 final RepositoryComments commentsInNewRepository =
-                        this.getCommentsInFileInNewRepository(diffEntry.getNewPath());
+                        this.getCommentsInFileInNewRepository(diffEntry);
                 // Find the comments created by deleting
                 final List<GroupedComment> updatedComments = editsToSATDComment.stream()
                         .flatMap( edit -> commentsInNewRepository.getComments().stream()
@@ -133,7 +131,8 @@ public class OldFileDifferencer extends FileDifferencer {
                                     .map(nc -> {
                                         // If the comment that was added is similar enough to the old comment
                                         // we can infer that the comment was changed
-                                        if( SimilarityUtil.commentsAreSimilar(oldComment, nc) ) {
+                                        if( SimilarityUtil.commentsAreSimilar(oldComment, nc,
+                                                this.config.getLevenshteinDistanceMin()) ) {
                                             // If the new comment is still SATD, then the instance is changed
                                             if( this.detector.isSATD(nc.getComment()) ) {
                                                 return new SATDInstance(
@@ -172,9 +171,8 @@ public class OldFileDifferencer extends FileDifferencer {
                             .filter(c -> !c.getContainingClass().equals(oldComment.getContainingClass()) ||
                                     !c.getContainingMethod().equals(oldComment.getContainingMethod()))
                             // Determine if the comment's method or class was renamed
-                            .filter(c -> editsToFile.stream().anyMatch( edit ->
-                                    editImpactedContainingClass(edit, c, false) ||
-                                            editImpactedContainingMethod(edit, c, false)))
+                            .filter(c -> editsImpactedContainingClass(editsToFile, c, false) ||
+                                    editsImpactedContainingMethod(editsToFile, c, false))
                             .map(nc -> new SATDInstance(
                                     new SATDInstanceInFile(diffEntry.getOldPath(), oldComment),
                                     new SATDInstanceInFile(diffEntry.getNewPath(), nc),
@@ -189,10 +187,12 @@ public class OldFileDifferencer extends FileDifferencer {
     }
 
 
-    private RepositoryComments getCommentsInFileInNewRepository(String fileName) {
+    private RepositoryComments getCommentsInFileInNewRepository(DiffEntry diffEntry) {
         final RepositoryComments comments = new RepositoryComments();
         try {
-            comments.addComments(JavaParseUtil.parseFileForComments(this.getFileContents(fileName), fileName));
+            // The entry already holds the ID of the new file's blob, so the tree need not be searched
+            comments.addComments(JavaParseUtil.parseBlobForComments(this.gitInstance.getRepository(),
+                    diffEntry.getNewId().toObjectId(), diffEntry.getNewPath(), this.config));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } catch (KnownParserException e) {
@@ -201,11 +201,6 @@ public class OldFileDifferencer extends FileDifferencer {
         return comments;
     }
 
-    private InputStream getFileContents(String fileName) throws IOException {
-        final TreeWalk walker = TreeWalk.forPath(this.gitInstance.getRepository(), fileName, this.newCommit.getTree());
-        return this.gitInstance.getRepository().open(walker.getObjectId(0)).openStream();
-    }
-
     private boolean editImpactedComment(Edit edit, GroupedComment comment, int boundIncrease, boolean isOld) {
         return isOld ? GitUtil.editOccursInOldFileBetween(edit,
                 comment.getStartLine() - boundIncrease, comment.getEndLine() + boundIncrease)
@@ -213,48 +208,41 @@ public class OldFileDifferencer extends FileDifferencer {
                 comment.getStartLine() - boundIncrease, comment.getEndLine() + boundIncrease);
     }
 
-    private boolean editsTouchedClassOrMethodSignatureOldComment(List<Edit> edits, GroupedComment oldComment) {
-        return edits.stream().anyMatch( edit ->
-                editImpactedContainingClass(edit, oldComment, true) ||
-                        editImpactedContainingMethod(edit, oldComment, true));
+    private boolean editsTouchedClassOrMethodSignatureOldComment(IndexedEditList edits, GroupedComment oldComment) {
+        return editsImpactedContainingClass(edits, oldComment, true) ||
+                editsImpactedContainingMethod(edits, oldComment, true);
     }
 
 
-    private boolean editImpactedContainingMethod(Edit edit, GroupedComment comment, boolean isOld) {
+    private boolean editsImpactedContainingMethod(IndexedEditList edits, GroupedComment comment, boolean isOld) {
         return isOld ?
-                GitUtil.editOccursInOldFileBetween(edit,
+                edits.anyEditInOldFileBetween(
                         comment.getContainingMethodDeclarationLineStart(),
                         comment.getContainingMethodDeclarationLineEnd())
-                : GitUtil.editOccursInNewFileBetween(edit,
+                : edits.anyEditInNewFileBetween(
                 comment.getContainingMethodDeclarationLineStart(),
                 comment.getContainingMethodDeclarationLineEnd());
     }
 
-    private boolean editImpactedContainingClass(Edit edit, GroupedComment comment, boolean isOld) {
+    private boolean editsImpactedContainingClass(IndexedEditList edits, GroupedComment comment, boolean isOld) {
         return isOld ?
-                GitUtil.editOccursInOldFileBetween(edit,
+                edits.anyEditInOldFileBetween(
                         comment.getContainingClassDeclarationLineStart(),
                         comment.getContainingClassDeclarationLineEnd())
-                : GitUtil.editOccursInNewFileBetween(edit,
+                : edits.anyEditInNewFileBetween(
                 comment.getContainingClassDeclarationLineStart(),
                 comment.getContainingClassDeclarationLineEnd());
     }
 
     private List<SATDInstanceInFile> getOtherInstancesInCommitFiles(GroupedComment commentToMatch, String curPath) {
-        final List<SATDInstanceInFile> allInstances = this.otherDiffEntries.stream()
-                .filter(diffEntry -> !diffEntry.getOldPath().equals(curPath))
-                .map(diffEntry -> new Pair(diffEntry, this.getCommentsInFileInNewRepository(diffEntry.getNewPath())))
-                .flatMap(pair ->
-                        ((RepositoryComments)pair.getValue()).getComments().stream()
-                                // Only comments that match this comment
-                                // TODO - can we apply the same thresholding logic here?
-                                .filter(comm -> commentToMatch.getComment().equals(comm.getComment()))
-                                // Only comments that were impacted by edits in this commit
-                                .filter(comment -> this.getEdits((DiffEntry)pair.getKey()).stream()
-                                        .anyMatch(edit -> editImpactedComment(edit, comment, 0, false)))
-                                .map(comm -> new SATDInstanceInFile(
-                                        ((DiffEntry)pair.getKey()).getNewPath(), comm
-                                )))
+        // TODO - can we apply the same thresholding logic here?
+        final List<SATDInstanceInFile> allInstances = this.getNewCommentIndex()
+                .getOrDefault(commentToMatch.getComment(), Collections.emptyList()).stream()
+                .filter(indexed -> !indexed.getDiffEntry().getOldPath().equals(curPath))
+                // Only comments that were impacted by edits in this commit
+                .filter(indexed -> this.getEdits(indexed.getDiffEntry()).anyEditInNewFileBetween(
+                        indexed.getComment().getStartLine(), indexed.getComment().getEndLine()))
+                .map(indexed -> new SATDInstanceInFile(indexed.getDiffEntry().getNewPath(), indexed.getComment()))
                 .collect(Collectors.toList());
         final List<SATDInstanceInFile> instancesWithSameMethod =
                 allInstances.stream()
@@ -271,4 +259,27 @@ public class OldFileDifferencer extends FileDifferencer {
         // If there is, then return only those instances
         return instancesWithSameMethod;
     }
+
+    /**
+     * @return the index of the comments in the new version of every file in the diff
+     */
+    private Map<String, List<IndexedComment>> getNewCommentIndex() {
+        if( this.newCommentIndex == null ) {
+            this.newCommentIndex = new HashMap<>();
+            this.otherDiffEntries.forEach(diffEntry ->
+                    this.getCommentsInFileInNewRepository(diffEntry).getComments().forEach(comment ->
+                            this.newCommentIndex.computeIfAbsent(comment.getComment(), c -> new ArrayList<>())
+                                    .add(new IndexedComment(diffEntry, comment))));
+        }
+        return this.newCommentIndex;
+    }
+
+    /**
+     * A comment in the new version of a file, and the diff entry of that file
+     */
+    @Value
+    private static class IndexedComment {
+        DiffEntry diffEntry;
+        GroupedComment comment;
+    }
 }
@@ -7,6 +7,10 @@ import org.apache.commons.lang3.StringUtils;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * Console output of a miner's progress. Progress is reported by both the mining and writing
+ * threads, so every update is synchronized.
+ */
 @RequiredArgsConstructor
 public class MinerStatus {
 
@@ -32,69 +36,89 @@ public class MinerStatus {
 
     private boolean outputEnabled = true;
 
-    public void setNDiffsPromised(int promised) {
+    public synchronized void setNDiffsPromised(int promised) {
         this.nDiffsPromised = promised;
         this.updateOutput();
     }
 
-    public void fulfilDiffPromise() {
+    public synchronized void fulfilDiffPromise() {
         this.nDiffsComplete++;
         this.updateOutput();
     }
 
-    public void addErrorEncountered() {
+    public synchronized void addErrorEncountered() {
         this.nErrorsEncountered++;
         this.updateOutput();
     }
 
-    public void setDisplayWindow(String text) {
+    public synchronized void setDisplayWindow(String text) {
         this.displayWindow = text;
         this.updateOutput();
     }
 
-    public void beginInitialization() {
+    public synchronized void beginInitialization() {
         this.status = STATUS_INITIALIZING;
         this.updateOutput();
     }
 
-    public void beginCalculatingDiffs() {
+    public synchronized void beginCalculatingDiffs() {
         this.status = STATUS_CALCULATING_DIFFS;
         this.updateOutput();
     }
 
-    public void beginMiningSATD() {
+    public synchronized void beginMiningSATD() {
         this.status = STATUS_MINING_SATD;
         this.timeMiningStarted = System.currentTimeMillis();
         this.updateOutput();
     }
 
-    public void beginCleanup() {
+    public synchronized void beginCleanup() {
         this.status = STATUS_CLEANING_UP;
         this.updateOutput();
     }
 
-    public void setComplete(long msElapsed) {
+    public synchronized void setComplete(long msElapsed) {
         this.status = STATUS_COMPLETE;
         System.out.print("\r" + StringUtils.repeat(" ", this.lastPrintLen));
         System.out.println(String.format("\rCompleted analyzing %d diffs in %,dms (%.2fms/diff, %d error%s) -- %s",
                 this.nDiffsComplete,
                 msElapsed,
-                ((float)msElapsed)/this.nDiffsComplete,
+                ((float)msElapsed)/Math.max(1, this.nDiffsComplete),
                 this.nErrorsEncountered,
                 this.nErrorsEncountered != 1 ? "s" : "",
                 this.repoName)
         );
     }
 
-    public void setError() {
+    public synchronized void setError() {
         this.status = STATUS_ERROR;
         System.err.println(String.format("\rError analyzing %s", this.repoName));
     }
 
-    public void setOutputEnabled(boolean enabled) {
+    public synchronized void setOutputEnabled(boolean enabled) {
         this.outputEnabled = enabled;
     }
 
+    public synchronized String getStatus() {
+        return this.status;
+    }
+
+    public synchronized String getDisplayWindow() {
+        return this.displayWindow;
+    }
+
+    public synchronized int getNDiffsPromised() {
+        return this.nDiffsPromised;
+    }
+
+    public synchronized int getNDiffsComplete() {
+        return this.nDiffsComplete;
+    }
+
+    public synchronized int getNErrorsEncountered() {
+        return this.nErrorsEncountered;
+    }
+
     private void updateOutput() {
         if( outputEnabled ) {
             String out = String.format("\r%s -- %-20s|%s| %s (%.1f%%, %d/%d, %d error%s) -- %s\r",
@@ -5,8 +5,12 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import java.io.Serializable;
+
 @RequiredArgsConstructor
-public class SATDInstanceInFile {
+public class SATDInstanceInFile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Getter
     @NonNull
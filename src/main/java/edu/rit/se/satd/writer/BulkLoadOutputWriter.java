@@ -0,0 +1,248 @@
+package edu.rit.se.satd.writer;
+
+import edu.rit.se.git.model.CommitMetaData;
+import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.model.SATDDifference;
+import edu.rit.se.satd.model.SATDInstance;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An OutputWriter which writes the rows of each table in sql/satd.sql to a tab-separated file
+ * in the format read by LOAD DATA, rather than to the database, so mining does not wait on
+ * the database. The rows are loaded with BulkLoader.
+ *
+ * The keys of each row are assigned by the writer, and only refer to rows in the same files.
+ * The loader gives the rows their keys in the database as they are loaded, so the files of any
+ * number of runs can be loaded into the same database. Each writer writes to a new numbered
+ * directory within the given directory, so the files of an interrupted run are kept.
+ *
+ * Every diff given to the writer is in the files once they are flushed, and the length of
+ * each file is then recorded so that rows cut off by an interruption are not loaded.
+ */
+public class BulkLoadOutputWriter implements OutputWriter {
+
+    public static final String PROJECTS_FILE = "Projects.tsv";
+    public static final String COMMITS_FILE = "Commits.tsv";
+    public static final String SATD_IN_FILE_FILE = "SATDInFile.tsv";
+    public static final String SATD_FILE = "SATD.tsv";
+    // The length of each file when it was last flushed
+    public static final String FLUSHED_LENGTHS_FILE = "flushed.properties";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String NULL_VALUE = "\\N";
+
+    // The directory the files are written to
+    @Getter
+    private final File directory;
+
+    // The files of each table, keyed by their names
+    private final Map<String, Writer> tables = new LinkedHashMap<>();
+
+    // The keys assigned to the rows already written
+    private final Map<String, Integer> projectIds = new HashMap<>();
+    private final Set<List<Object>> writtenCommits = new HashSet<>();
+    private final Map<SATDInFileKey, Integer> fileIds = new HashMap<>();
+    private int nSATDRows = 0;
+
+    // Dates are written as they are by MySQLOutputWriter, in the local time zone
+    private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * @param parentDirectory the directory in which to create the directory the files are written to
+     * @throws IOException thrown if the files could not be created
+     */
+    public BulkLoadOutputWriter(File parentDirectory) throws IOException {
+        Files.createDirectories(parentDirectory.toPath());
+        File directory = null;
+        for( int run = 1; directory == null; run++ ) {
+            try {
+                directory = Files.createDirectory(new File(parentDirectory, Integer.toString(run)).toPath()).toFile();
+            } catch (FileAlreadyExistsException e) {
+                // Written by an earlier run
+            }
+        }
+        this.directory = directory;
+        for( final String table : Arrays.asList(PROJECTS_FILE, COMMITS_FILE, SATD_IN_FILE_FILE, SATD_FILE) ) {
+            this.tables.put(table, new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(new File(this.directory, table)), StandardCharsets.UTF_8), BUFFER_SIZE));
+        }
+    }
+
+    /**
+     * Writes the rows of the diff to the files, which are only certain to hold them once
+     * flushed. This writer may be used by several threads at once, but writes one diff at a time.
+     */
+    @Override
+    public synchronized void writeDiff(SATDDifference diff) throws IOException {
+        final int projectId = this.getProjectId(diff.getProjectName(), diff.getProjectURI());
+        final String oldCommitHash = this.getCommitHash(new CommitMetaData(diff.getOldCommit()), projectId);
+        final String newCommitHash = this.getCommitHash(new CommitMetaData(diff.getNewCommit()), projectId);
+        // The old and new file IDs of each instance written for these commits
+        final Set<List<Integer>> writtenFilePairs = new HashSet<>();
+        for( final SATDInstance satdInstance : diff.getSatdInstances() ) {
+            final int oldFileId = this.getSATDInFileId(satdInstance, true);
+            final int newFileId = this.getSATDInFileId(satdInstance, false);
+            if( writtenFilePairs.add(Arrays.asList(oldFileId, newFileId)) ) {
+                this.writeRow(SATD_FILE,
+                        ++this.nSATDRows, // satd_id
+                        satdInstance.getId(), // satd_instance_id
+                        satdInstance.getParentId(), // parent_instance_id
+                        projectId, // p_id
+                        oldCommitHash, // first_commit
+                        newCommitHash, // second_commit
+                        oldFileId, // first_file
+                        newFileId, // second_file
+                        satdInstance.getResolution().name()); // resolution
+            }
+        }
+    }
+
+    private int getProjectId(String projectName, String projectUrl) throws IOException {
+        if( !this.projectIds.containsKey(projectName) ) {
+            final int projectId = this.projectIds.size() + 1;
+            this.writeRow(PROJECTS_FILE, projectId, projectName, projectUrl);
+            this.projectIds.put(projectName, projectId);
+        }
+        return this.projectIds.get(projectName);
+    }
+
+    private String getCommitHash(CommitMetaData commitMetaData, int projectId) throws IOException {
+        if( this.writtenCommits.add(Arrays.asList(projectId, commitMetaData.getHash())) ) {
+            this.writeRow(COMMITS_FILE,
+                    commitMetaData.getHash(), // commit_hash
+                    projectId, // p_id
+                    commitMetaData.getAuthorName(), // author_name
+                    commitMetaData.getAuthorEmail(), // author_email
+                    this.formatDate(commitMetaData.getAuthorDate()), // author_date
+                    commitMetaData.getCommitterName(), // committer_name
+                    commitMetaData.getCommitterEmail(), // committer_email
+                    this.formatDate(commitMetaData.getCommitDate())); // commit_date
+        }
+        return commitMetaData.getHash();
+    }
+
+    private int getSATDInFileId(SATDInstance satdInstance, boolean useOld) throws IOException {
+        final SATDInFileKey key = SATDInFileKey.of(satdInstance, useOld);
+        if( !this.fileIds.containsKey(key) ) {
+            final int fileId = this.fileIds.size() + 1;
+            final GroupedComment comment = useOld ?
+                    satdInstance.getOldInstance().getComment() : satdInstance.getNewInstance().getComment();
+            this.writeRow(SATD_IN_FILE_FILE,
+                    fileId, // f_id
+                    key.getComment(), // f_comment
+                    comment.getCommentType(), // f_comment_type
+                    key.getPath(), // f_path
+                    key.getStartLine(), // start_line
+                    key.getEndLine(), // end_line
+                    comment.getContainingClass(), // containing_class
+                    comment.getContainingMethod()); // containing_method
+            this.fileIds.put(key, fileId);
+        }
+        return this.fileIds.get(key);
+    }
+
+    private String formatDate(Date date) {
+        return date != null ? this.dateFormat.format(date) : null;
+    }
+
+    private void writeRow(String table, Object... values) throws IOException {
+        final Writer out = this.tables.get(table);
+        for( int i = 0; i < values.length; i++ ) {
+            if( i > 0 ) {
+                out.write('\t');
+            }
+            out.write(values[i] != null ? escape(values[i].toString()) : NULL_VALUE);
+        }
+        out.write('\n');
+    }
+
+    /**
+     * @param value a value of a row
+     * @return the value with every character LOAD DATA treats specially escaped
+     */
+    static String escape(String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for( int i = 0; i < value.length(); i++ ) {
+            final char c = value.charAt(i);
+            switch( c ) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\0':
+                    escaped.append("\\0");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Writes every queued row to the files, and records the length of each file
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        final Properties lengths = new Properties();
+        for( final Map.Entry<String, Writer> table : this.tables.entrySet() ) {
+            table.getValue().flush();
+            lengths.setProperty(table.getKey(), Long.toString(new File(this.directory, table.getKey()).length()));
+        }
+        // Replaced at once, so an interruption leaves the previously recorded lengths
+        final File lengthsFile = new File(this.directory, FLUSHED_LENGTHS_FILE);
+        final File tempFile = new File(this.directory, FLUSHED_LENGTHS_FILE + ".tmp");
+        try( OutputStream out = new FileOutputStream(tempFile) ) {
+            lengths.store(out, null);
+        }
+        Files.move(tempFile.toPath(), lengthsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            this.flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing bulk load files: " + e.getLocalizedMessage());
+        }
+        for( final Writer table : this.tables.values() ) {
+            try {
+                table.close();
+            } catch (IOException e) {
+                System.err.println("Error closing bulk load file: " + e.getLocalizedMessage());
+            }
+        }
+    }
+}
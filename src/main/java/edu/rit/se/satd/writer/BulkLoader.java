@@ -0,0 +1,256 @@
+package edu.rit.se.satd.writer;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Loads the files written by BulkLoadOutputWriter into the database with LOAD DATA LOCAL INFILE.
+ *
+ * The rows of each table are loaded into a temporary table, from which the rows not yet in
+ * the database are inserted. The keys assigned by the writer are then replaced with the keys
+ * the rows were given in the database. Rows already in the database are matched the same way
+ * MySQLOutputWriter matches them, so files may be loaded more than once, and the files of a
+ * run which resumed from a checkpoint may be loaded along with those of the interrupted run.
+ *
+ * The server must allow LOAD DATA LOCAL INFILE, by setting local_infile.
+ */
+public class BulkLoader {
+
+    private static final String LOAD_OPTIONS = "CHARACTER SET utf8mb4 " +
+            "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'";
+
+    private final String dbURI;
+    private final String user;
+    private final String pass;
+
+    public BulkLoader(String propertiesPath) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(new FileInputStream(new File(propertiesPath)));
+        this.dbURI = MySQLOutputWriter.getDatabaseURI(properties) + "&allowLoadLocalInfile=true";
+        this.user = properties.getProperty("USERNAME");
+        this.pass = properties.getProperty("PASSWORD");
+
+        try {
+            // Load driver
+            Class.forName("com.mysql.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Loads bulk load files into the database
+     * @param args the database properties file, followed by any number of directories. Every
+     *             directory of files found within them is loaded.
+     */
+    public static void main(String[] args) throws Exception {
+        if( args.length < 2 ) {
+            System.err.println("usage: BulkLoader <database_properties_file> <bulk_load_dir>...");
+            System.exit(1);
+        }
+        final BulkLoader loader = new BulkLoader(args[0]);
+        for( int i = 1; i < args.length; i++ ) {
+            for( final File directory : findFileDirectories(new File(args[i])) ) {
+                try {
+                    loader.load(directory);
+                    System.out.println("Loaded " + directory);
+                } catch (IOException | SQLException e) {
+                    // The files of each run are loaded in their own transaction, so the rest can still be loaded
+                    System.err.println("Error loading " + directory + ": " + e.getLocalizedMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param directory a directory given to the loader
+     * @return every directory within the directory, or the directory itself, containing bulk
+     * load files, ordered so the runs of each repository are loaded in the order they were made
+     */
+    static List<File> findFileDirectories(File directory) {
+        final List<File> directories = new ArrayList<>();
+        if( new File(directory, BulkLoadOutputWriter.PROJECTS_FILE).isFile() ) {
+            directories.add(directory);
+        }
+        final File[] children = directory.listFiles(File::isDirectory);
+        if( children != null ) {
+            // Runs are numbered, so numbers are ordered by their value
+            final Comparator<File> order = Comparator
+                    .comparing((File file) -> !file.getName().matches("\\d{1,9}"))
+                    .thenComparing(file -> file.getName().matches("\\d{1,9}") ? Integer.parseInt(file.getName()) : 0)
+                    .thenComparing(File::getName);
+            Arrays.sort(children, order);
+            for( final File child : children ) {
+                directories.addAll(findFileDirectories(child));
+            }
+        }
+        return directories;
+    }
+
+    /**
+     * Loads one directory of files written by a BulkLoadOutputWriter in a single transaction
+     * @param directory the directory containing the files
+     * @throws IOException thrown if the files were never flushed, or could not be read
+     * @throws SQLException thrown if the rows could not be loaded, in which case none of them are
+     */
+    public void load(File directory) throws IOException, SQLException {
+        final Properties lengths = new Properties();
+        final File lengthsFile = new File(directory, BulkLoadOutputWriter.FLUSHED_LENGTHS_FILE);
+        if( !lengthsFile.isFile() ) {
+            throw new IOException("The files were never flushed, so may hold incomplete rows");
+        }
+        try( InputStream in = new FileInputStream(lengthsFile) ) {
+            lengths.load(in);
+        }
+        final List<File> tempFiles = new ArrayList<>();
+        try( Connection conn = DriverManager.getConnection(this.dbURI, this.user, this.pass);
+             Statement stmt = conn.createStatement() ) {
+            // The temporary tables are dropped once the connection is closed
+            conn.setAutoCommit(false);
+            try {
+                this.loadProjects(stmt, getFlushedFile(directory, BulkLoadOutputWriter.PROJECTS_FILE, lengths, tempFiles));
+                this.loadCommits(stmt, getFlushedFile(directory, BulkLoadOutputWriter.COMMITS_FILE, lengths, tempFiles));
+                this.loadSATDInFile(stmt,
+                        getFlushedFile(directory, BulkLoadOutputWriter.SATD_IN_FILE_FILE, lengths, tempFiles));
+                this.loadSATD(stmt, getFlushedFile(directory, BulkLoadOutputWriter.SATD_FILE, lengths, tempFiles));
+                conn.commit();
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    System.err.println("Error rolling back SQL transaction");
+                }
+                throw e;
+            }
+        } finally {
+            for( final File tempFile : tempFiles ) {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+    }
+
+    private void loadProjects(Statement stmt, File file) throws SQLException {
+        stmt.execute("CREATE TEMPORARY TABLE LoadProjects (" +
+                "p_id INT NOT NULL, p_name VARCHAR(255), p_url VARCHAR(255), db_p_id INT, " +
+                "PRIMARY KEY (p_id))");
+        stmt.execute(loadStatement(file, "LoadProjects", "p_id, p_name, p_url"));
+        stmt.execute("INSERT INTO Projects(p_name, p_url) " +
+                "SELECT l.p_name, l.p_url FROM LoadProjects l " +
+                "WHERE NOT EXISTS (SELECT 1 FROM Projects p WHERE p.p_name = l.p_name) ORDER BY l.p_id");
+        stmt.execute("UPDATE LoadProjects l JOIN Projects p ON p.p_name = l.p_name SET l.db_p_id = p.p_id");
+    }
+
+    private void loadCommits(Statement stmt, File file) throws SQLException {
+        stmt.execute("CREATE TEMPORARY TABLE LoadCommits (" +
+                "commit_hash VARCHAR(256), p_id INT, author_name VARCHAR(256), author_email VARCHAR(256), " +
+                "author_date DATETIME, committer_name VARCHAR(256), committer_email VARCHAR(256), " +
+                "commit_date DATETIME)");
+        stmt.execute(loadStatement(file, "LoadCommits", "commit_hash, p_id, author_name, author_email, " +
+                "author_date, committer_name, committer_email, commit_date"));
+        stmt.execute("INSERT INTO Commits(commit_hash, p_id, author_name, author_email, author_date, " +
+                "committer_name, committer_email, commit_date) " +
+                "SELECT c.commit_hash, p.db_p_id, c.author_name, c.author_email, c.author_date, " +
+                "c.committer_name, c.committer_email, c.commit_date " +
+                "FROM LoadCommits c JOIN LoadProjects p ON p.p_id = c.p_id " +
+                "WHERE NOT EXISTS (SELECT 1 FROM Commits e " +
+                "WHERE e.p_id = p.db_p_id AND e.commit_hash = c.commit_hash)");
+    }
+
+    private void loadSATDInFile(Statement stmt, File file) throws SQLException {
+        // Indexed by the columns file instances are matched on, so existing rows can be matched
+        // in a single pass over the SATDInFile table
+        stmt.execute("CREATE TEMPORARY TABLE LoadSATDInFile (" +
+                "f_id INT NOT NULL, f_comment VARCHAR(4096), f_comment_type VARCHAR(32), f_path VARCHAR(512), " +
+                "start_line INT, end_line INT, containing_class VARCHAR(512), containing_method VARCHAR(512), " +
+                "db_f_id INT, PRIMARY KEY (f_id), INDEX (f_path(255), start_line, end_line))");
+        stmt.execute(loadStatement(file, "LoadSATDInFile", "f_id, f_comment, f_comment_type, f_path, " +
+                "start_line, end_line, containing_class, containing_method"));
+        this.matchSATDInFile(stmt);
+        stmt.execute("INSERT INTO SATDInFile(f_comment, f_comment_type, f_path, start_line, end_line, " +
+                "containing_class, containing_method) " +
+                "SELECT f_comment, f_comment_type, f_path, start_line, end_line, containing_class, containing_method " +
+                "FROM LoadSATDInFile WHERE db_f_id IS NULL ORDER BY f_id");
+        this.matchSATDInFile(stmt);
+    }
+
+    /**
+     * Gives each loaded file instance without a key in the database the key of the first
+     * matching row in the SATDInFile table
+     */
+    private void matchSATDInFile(Statement stmt) throws SQLException {
+        // A temporary table may only be referred to once in each statement, so the keys are
+        // found before they are set
+        stmt.execute("CREATE TEMPORARY TABLE LoadSATDInFileMatches (f_id INT NOT NULL, db_f_id INT, " +
+                "PRIMARY KEY (f_id)) " +
+                "SELECT l.f_id, MIN(f.f_id) AS db_f_id FROM LoadSATDInFile l JOIN SATDInFile f " +
+                "ON f.f_path = l.f_path AND f.start_line = l.start_line AND f.end_line = l.end_line " +
+                "AND f.f_comment = l.f_comment " +
+                "WHERE l.db_f_id IS NULL GROUP BY l.f_id");
+        stmt.execute("UPDATE LoadSATDInFile l JOIN LoadSATDInFileMatches m ON m.f_id = l.f_id " +
+                "SET l.db_f_id = m.db_f_id");
+        stmt.execute("DROP TEMPORARY TABLE LoadSATDInFileMatches");
+    }
+
+    private void loadSATD(Statement stmt, File file) throws SQLException {
+        stmt.execute("CREATE TEMPORARY TABLE LoadSATD (" +
+                "satd_id INT NOT NULL, satd_instance_id INT, parent_instance_id INT, p_id INT, " +
+                "first_commit VARCHAR(256), second_commit VARCHAR(256), first_file INT, second_file INT, " +
+                "resolution VARCHAR(64), db_first_file INT, db_second_file INT, PRIMARY KEY (satd_id))");
+        stmt.execute(loadStatement(file, "LoadSATD", "satd_id, satd_instance_id, parent_instance_id, p_id, " +
+                "first_commit, second_commit, first_file, second_file, resolution"));
+        stmt.execute("UPDATE LoadSATD s JOIN LoadSATDInFile f ON f.f_id = s.first_file SET s.db_first_file = f.db_f_id");
+        stmt.execute("UPDATE LoadSATD s JOIN LoadSATDInFile f ON f.f_id = s.second_file SET s.db_second_file = f.db_f_id");
+        stmt.execute("INSERT INTO SATD(satd_instance_id, parent_instance_id, p_id, first_commit, second_commit, " +
+                "first_file, second_file, resolution) " +
+                "SELECT s.satd_instance_id, s.parent_instance_id, p.db_p_id, s.first_commit, s.second_commit, " +
+                "s.db_first_file, s.db_second_file, s.resolution " +
+                "FROM LoadSATD s JOIN LoadProjects p ON p.p_id = s.p_id " +
+                "WHERE NOT EXISTS (SELECT 1 FROM SATD e WHERE e.first_commit = s.first_commit AND " +
+                "e.second_commit = s.second_commit AND e.first_file = s.db_first_file AND " +
+                "e.second_file = s.db_second_file) ORDER BY s.satd_id");
+    }
+
+    private static String loadStatement(File file, String table, String columns) {
+        return String.format("LOAD DATA LOCAL INFILE '%s' INTO TABLE %s %s (%s)",
+                file.getAbsolutePath().replace("\\", "\\\\").replace("'", "\\'"), table, LOAD_OPTIONS, columns);
+    }
+
+    /**
+     * @param directory the directory containing the files
+     * @param table the name of a table's file
+     * @param lengths the length of each file when it was last flushed
+     * @param tempFiles the temporary files created, which are deleted once loaded
+     * @return the table's file, or a temporary copy of it without the rows written after it
+     * was last flushed
+     * @throws IOException thrown if the file could not be copied
+     */
+    private static File getFlushedFile(File directory, String table, Properties lengths, List<File> tempFiles)
+            throws IOException {
+        final File file = new File(directory, table);
+        final long flushedLength = Long.parseLong(lengths.getProperty(table, "0"));
+        if( file.length() <= flushedLength ) {
+            return file;
+        }
+        final File tempFile = File.createTempFile("satd-bulk-load", ".tsv");
+        tempFiles.add(tempFile);
+        try( InputStream in = new BoundedInputStream(new FileInputStream(file), flushedLength) ) {
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return tempFile;
+    }
+}
@@ -0,0 +1,83 @@
+package edu.rit.se.satd.writer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A pool of database connections which are reused between writes, so that a new
+ * connection does not need to be established for each write
+ */
+class ConnectionPool {
+
+    // Seconds to wait when checking that an idle connection is still open
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private final String dbURI;
+    private final String user;
+    private final String pass;
+
+    private final BlockingQueue<Connection> idleConnections;
+
+    /**
+     * @param dbURI the URI of the database
+     * @param user the username to connect with
+     * @param pass the password to connect with
+     * @param maxIdleConnections the most connections to keep open while not in use
+     */
+    ConnectionPool(String dbURI, String user, String pass, int maxIdleConnections) {
+        this.dbURI = dbURI;
+        this.user = user;
+        this.pass = pass;
+        this.idleConnections = new ArrayBlockingQueue<>(Math.max(1, maxIdleConnections));
+    }
+
+    /**
+     * @return an idle connection if one is still open, otherwise a new connection
+     * @throws SQLException thrown if a new connection could not be established
+     */
+    Connection getConnection() throws SQLException {
+        Connection conn;
+        while( (conn = this.idleConnections.poll()) != null ) {
+            if( conn.isValid(VALIDATION_TIMEOUT) ) {
+                return conn;
+            }
+            closeConnection(conn);
+        }
+        return DriverManager.getConnection(this.dbURI, this.user, this.pass);
+    }
+
+    /**
+     * Returns a connection to the pool once it is no longer in use
+     * @param conn a connection obtained from this pool
+     */
+    void releaseConnection(Connection conn) {
+        if( !this.idleConnections.offer(conn) ) {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Closes every idle connection
+     */
+    void close() {
+        Connection conn;
+        while( (conn = this.idleConnections.poll()) != null ) {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Closes a connection that should not be reused, such as one that encountered an error
+     * @param conn the connection to close
+     */
+    static void closeConnection(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing SQL connection");
+        }
+    }
+}
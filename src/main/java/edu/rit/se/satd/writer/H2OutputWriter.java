@@ -0,0 +1,340 @@
+package edu.rit.se.satd.writer;
+
+import edu.rit.se.git.model.CommitMetaData;
+import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.model.SATDDifference;
+import edu.rit.se.satd.model.SATDInstance;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An OutputWriter which writes to an embedded H2 database in a local file, so mining can be
+ * output without a database server. The tables are those of sql/satd.sql, and are created
+ * if the database does not yet have them.
+ *
+ * Each statement is prepared once and reused for every diff. Rows are written in a transaction
+ * which is only committed when the writer is flushed, or once enough diffs have been written,
+ * so the database is not synced to disk for every diff. A diff which fails to be written is
+ * rolled back without the rest of the transaction.
+ */
+public class H2OutputWriter implements OutputWriter {
+
+    // The most diffs written before their rows are committed without a flush
+    private static final int MAX_DIFFS_PER_COMMIT = 1000;
+
+    // The tables of sql/satd.sql, along with indexes for the lookups made when writing
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS Projects (" +
+                    "p_id INT AUTO_INCREMENT NOT NULL, " +
+                    "p_name VARCHAR(255) NOT NULL UNIQUE, " +
+                    "p_url VARCHAR(255) NOT NULL UNIQUE, " +
+                    "PRIMARY KEY (p_id))",
+            "CREATE TABLE IF NOT EXISTS SATDInFile (" +
+                    "f_id INT AUTO_INCREMENT, " +
+                    "f_comment VARCHAR(4096), " +
+                    "f_comment_type VARCHAR(32), " +
+                    "f_path VARCHAR(512), " +
+                    "start_line INT, " +
+                    "end_line INT, " +
+                    "containing_class VARCHAR(512), " +
+                    "containing_method VARCHAR(512), " +
+                    "PRIMARY KEY (f_id))",
+            "CREATE TABLE IF NOT EXISTS Commits (" +
+                    "commit_hash VARCHAR(256), " +
+                    "p_id INT, " +
+                    "author_name VARCHAR(256), " +
+                    "author_email VARCHAR(256), " +
+                    "author_date DATETIME, " +
+                    "committer_name VARCHAR(256), " +
+                    "committer_email VARCHAR(256), " +
+                    "commit_date DATETIME, " +
+                    "PRIMARY KEY (p_id, commit_hash), " +
+                    "FOREIGN KEY (p_id) REFERENCES Projects(p_id))",
+            "CREATE TABLE IF NOT EXISTS SATD (" +
+                    "satd_id INT AUTO_INCREMENT, " +
+                    "satd_instance_id INT, " +
+                    "parent_instance_id INT, " +
+                    "p_id INT, " +
+                    "first_commit VARCHAR(256), " +
+                    "second_commit VARCHAR(256), " +
+                    "first_file INT, " +
+                    "second_file INT, " +
+                    "resolution VARCHAR(64), " +
+                    "PRIMARY KEY (satd_id), " +
+                    "FOREIGN KEY (p_id) REFERENCES Projects(p_id), " +
+                    "FOREIGN KEY (p_id, first_commit) REFERENCES Commits(p_id, commit_hash), " +
+                    "FOREIGN KEY (p_id, second_commit) REFERENCES Commits(p_id, commit_hash), " +
+                    "FOREIGN KEY (first_file) REFERENCES SATDInFile(f_id), " +
+                    "FOREIGN KEY (second_file) REFERENCES SATDInFile(f_id))",
+            "CREATE INDEX IF NOT EXISTS SATDInFile_location ON SATDInFile(f_path, start_line, end_line)",
+            "CREATE INDEX IF NOT EXISTS SATD_commits ON SATD(first_commit, second_commit)"
+    };
+
+    private final Map<String, Integer> cachedProjectKeys = new HashMap<>();
+
+    private final Connection conn;
+
+    private final PreparedStatement queryProjectStmt;
+    private final PreparedStatement insertProjectStmt;
+    private final PreparedStatement queryCommitStmt;
+    private final PreparedStatement insertCommitStmt;
+    private final PreparedStatement queryFileStmt;
+    private final PreparedStatement insertFileStmt;
+    private final PreparedStatement querySATDStmt;
+    private final PreparedStatement insertSATDStmt;
+
+    // The number of diffs written since the last commit
+    private int nUncommittedDiffs = 0;
+
+    /**
+     * @param databaseFile the file of the database, to which H2 adds its own extension
+     * @throws IOException thrown if the database could not be opened
+     */
+    public H2OutputWriter(File databaseFile) throws IOException {
+        try {
+            // Load driver
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        try {
+            this.conn = DriverManager.getConnection(
+                    "jdbc:h2:" + databaseFile.getAbsolutePath() + ";MODE=MySQL");
+            try (final Statement stmt = this.conn.createStatement()) {
+                for( final String table : SCHEMA ) {
+                    stmt.execute(table);
+                }
+            }
+            this.conn.setAutoCommit(false);
+
+            this.queryProjectStmt = this.conn.prepareStatement(
+                    "SELECT p_id FROM Projects WHERE p_name=?");
+            this.insertProjectStmt = this.conn.prepareStatement(
+                    "INSERT INTO Projects(p_name, p_url) VALUES (?,?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            this.queryCommitStmt = this.conn.prepareStatement(
+                    "SELECT 1 FROM Commits WHERE commit_hash=? AND p_id=?");
+            this.insertCommitStmt = this.conn.prepareStatement(
+                    "INSERT INTO Commits(commit_hash, p_id, author_name, author_email, author_date, " +
+                            "committer_name, committer_email, commit_date) VALUES (?,?,?,?,?,?,?,?)");
+            this.queryFileStmt = this.conn.prepareStatement(
+                    "SELECT f_id FROM SATDInFile WHERE f_comment=? AND f_path=? AND " +
+                            "start_line=? AND end_line=? ORDER BY f_id LIMIT 1");
+            this.insertFileStmt = this.conn.prepareStatement(
+                    "INSERT INTO SATDInFile(f_comment, f_comment_type, f_path, start_line, end_line, " +
+                            "containing_class, containing_method) VALUES (?,?,?,?,?,?,?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            this.querySATDStmt = this.conn.prepareStatement(
+                    "SELECT first_file, second_file FROM SATD WHERE first_commit=? AND second_commit=?");
+            this.insertSATDStmt = this.conn.prepareStatement(
+                    "INSERT INTO SATD(first_commit, second_commit, first_file, second_file, " +
+                            "resolution, satd_instance_id, p_id, parent_instance_id) VALUES (?,?,?,?,?,?,?,?)");
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the diff to the database's open transaction, which is committed once flushed.
+     * This writer may be used by several threads at once, but writes one diff at a time.
+     */
+    @Override
+    public synchronized void writeDiff(SATDDifference diff) throws IOException {
+        Savepoint savepoint = null;
+        try {
+            savepoint = this.conn.setSavepoint();
+            final int projectId = this.getCachedProjectId(diff.getProjectName(), diff.getProjectURI());
+            final CommitMetaData oldCommit = new CommitMetaData(diff.getOldCommit());
+            final CommitMetaData newCommit = new CommitMetaData(diff.getNewCommit());
+            this.insertCommits(projectId, oldCommit, newCommit);
+            final String oldCommitHash = oldCommit.getHash();
+            final String newCommitHash = newCommit.getHash();
+
+            // The old and new file IDs of each instance already written for these commits
+            final Set<List<Integer>> writtenFilePairs = new HashSet<>();
+            this.querySATDStmt.setString(1, oldCommitHash); // first_commit
+            this.querySATDStmt.setString(2, newCommitHash); // second_commit
+            try (final ResultSet res = this.querySATDStmt.executeQuery()) {
+                while( res.next() ) {
+                    writtenFilePairs.add(Arrays.asList(res.getInt(1), res.getInt(2)));
+                }
+            }
+            boolean hasBatch = false;
+            for( final SATDInstance satdInstance : diff.getSatdInstances() ) {
+                final int oldFileId = this.getSATDInFileId(satdInstance, true);
+                final int newFileId = this.getSATDInFileId(satdInstance, false);
+                if( writtenFilePairs.add(Arrays.asList(oldFileId, newFileId)) ) {
+                    this.insertSATDStmt.setString(1, oldCommitHash); // first_commit
+                    this.insertSATDStmt.setString(2, newCommitHash); // second_commit
+                    this.insertSATDStmt.setInt(3, oldFileId); // first_file
+                    this.insertSATDStmt.setInt(4, newFileId); // second_file
+                    this.insertSATDStmt.setString(5, satdInstance.getResolution().name()); // resolution
+                    this.insertSATDStmt.setInt(6, satdInstance.getId()); // satd_instance_id
+                    this.insertSATDStmt.setInt(7, projectId); // p_id
+                    this.insertSATDStmt.setInt(8, satdInstance.getParentId()); // parent_instance_id
+                    this.insertSATDStmt.addBatch();
+                    hasBatch = true;
+                }
+            }
+            if( hasBatch ) {
+                this.insertSATDStmt.executeBatch();
+            }
+            this.conn.releaseSavepoint(savepoint);
+        } catch (SQLException e) {
+            // None of the diff's rows are committed, including any project it inserted
+            try {
+                this.insertCommitStmt.clearBatch();
+                this.insertSATDStmt.clearBatch();
+                if( savepoint != null ) {
+                    this.conn.rollback(savepoint);
+                }
+            } catch (SQLException rollbackError) {
+                System.err.println("Error rolling back SQL transaction");
+            }
+            this.cachedProjectKeys.clear();
+            // Issues with SQL will be wrapped in an IOException to maintain interface consistency
+            throw new IOException(e);
+        }
+        if( ++this.nUncommittedDiffs >= MAX_DIFFS_PER_COMMIT ) {
+            this.flush();
+        }
+    }
+
+    private int getCachedProjectId(String projectName, String projectUrl) throws SQLException {
+        if( !this.cachedProjectKeys.containsKey(projectName) ) {
+            this.cachedProjectKeys.put(projectName, this.getProjectId(projectName, projectUrl));
+        }
+        return this.cachedProjectKeys.get(projectName);
+    }
+
+    private int getProjectId(String projectName, String projectUrl) throws SQLException {
+        this.queryProjectStmt.setString(1, projectName); // p_name
+        try (final ResultSet res = this.queryProjectStmt.executeQuery()) {
+            if( res.next() ) {
+                return res.getInt(1);
+            }
+        }
+        this.insertProjectStmt.setString(1, projectName); // p_name
+        this.insertProjectStmt.setString(2, projectUrl); // p_url
+        this.insertProjectStmt.executeUpdate();
+        try (final ResultSet updateRes = this.insertProjectStmt.getGeneratedKeys()) {
+            if( updateRes.next() ) {
+                return updateRes.getInt(1);
+            }
+        }
+        throw new SQLException("Could not obtain the project ID.");
+    }
+
+    /**
+     * Inserts each of the commits which is not already present in a single batch
+     */
+    private void insertCommits(int projectId, CommitMetaData... commits) throws SQLException {
+        final Set<String> insertedHashes = new HashSet<>();
+        for( final CommitMetaData commitMetaData : commits ) {
+            this.queryCommitStmt.setString(1, commitMetaData.getHash()); // commit_hash
+            this.queryCommitStmt.setInt(2, projectId); // p_id
+            final boolean isStored;
+            try (final ResultSet res = this.queryCommitStmt.executeQuery()) {
+                isStored = res.next();
+            }
+            if( !isStored && insertedHashes.add(commitMetaData.getHash()) ) {
+                this.insertCommitStmt.setString(1, commitMetaData.getHash()); // commit_hash
+                this.insertCommitStmt.setInt(2, projectId); // p_id
+                this.insertCommitStmt.setString(3, commitMetaData.getAuthorName()); // author_name
+                this.insertCommitStmt.setString(4, commitMetaData.getAuthorEmail()); // author_email
+                this.insertCommitStmt.setTimestamp(5, toTimestamp(commitMetaData.getAuthorDate())); // author_date
+                this.insertCommitStmt.setString(6, commitMetaData.getCommitterName()); // committer_name
+                this.insertCommitStmt.setString(7, commitMetaData.getCommitterEmail()); // committer_email
+                this.insertCommitStmt.setTimestamp(8, toTimestamp(commitMetaData.getCommitDate())); // commit_date
+                this.insertCommitStmt.addBatch();
+            }
+        }
+        if( !insertedHashes.isEmpty() ) {
+            this.insertCommitStmt.executeBatch();
+        }
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date != null ? new Timestamp(date.getTime()) : null;
+    }
+
+    /**
+     * Gets the ID for the SATD file instance, and inserts it if it is not present
+     * @param satdInstance The SATD instance to draw diff from
+     * @param useOld True if the old file info in the SATDInstance should be used, else False
+     * @return The ID for the SATD file instance
+     * @throws SQLException Thrown if any SQL exceptions are encountered.
+     */
+    private int getSATDInFileId(SATDInstance satdInstance, boolean useOld) throws SQLException {
+        final SATDInFileKey key = SATDInFileKey.of(satdInstance, useOld);
+        this.queryFileStmt.setString(1, key.getComment()); // f_comment
+        this.queryFileStmt.setString(2, key.getPath()); // f_path
+        this.queryFileStmt.setInt(3, key.getStartLine()); // start_line
+        this.queryFileStmt.setInt(4, key.getEndLine()); // end_line
+        try (final ResultSet res = this.queryFileStmt.executeQuery()) {
+            if( res.next() ) {
+                return res.getInt(1);
+            }
+        }
+        final GroupedComment comment = useOld ? satdInstance.getOldInstance().getComment() :
+                satdInstance.getNewInstance().getComment();
+        this.insertFileStmt.setString(1, key.getComment()); // f_comment
+        this.insertFileStmt.setString(2, comment.getCommentType()); // f_comment_type
+        this.insertFileStmt.setString(3, key.getPath()); // f_path
+        this.insertFileStmt.setInt(4, key.getStartLine()); // start_line
+        this.insertFileStmt.setInt(5, key.getEndLine()); // end_line
+        this.insertFileStmt.setString(6, comment.getContainingClass()); // containing_class
+        this.insertFileStmt.setString(7, comment.getContainingMethod()); // containing_method
+        this.insertFileStmt.executeUpdate();
+        try (final ResultSet updateRes = this.insertFileStmt.getGeneratedKeys()) {
+            if( updateRes.next() ) {
+                return updateRes.getInt(1);
+            }
+        }
+        throw new SQLException("Could not obtain a file instance ID.");
+    }
+
+    /**
+     * Commits every diff written so far
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        try {
+            this.conn.commit();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        this.nUncommittedDiffs = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            this.flush();
+        } catch (IOException e) {
+            System.err.println("Error committing to the embedded database: " + e.getLocalizedMessage());
+        }
+        try {
+            // Closing the connection also closes its statements
+            this.conn.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing the embedded database: " + e.getLocalizedMessage());
+        }
+    }
+}
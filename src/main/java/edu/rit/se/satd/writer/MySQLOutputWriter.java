@@ -8,18 +8,23 @@ import edu.rit.se.satd.model.SATDInstance;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 
 public class MySQLOutputWriter implements OutputWriter {
 
-    private static final int COMMENTS_MAX_CHARS = 4096;
+    // The most file instances to look up in a single query when writing in batches
+    private static final int MAX_LOOKUPS_PER_QUERY = 500;
 
     private final Map<String, Integer> cachedProjectKeys = new HashMap<>();
 
@@ -27,22 +32,24 @@ public class MySQLOutputWriter implements OutputWriter {
     private final String user;
     private final String pass;
 
-    private final ScheduledThreadPoolExecutor finalWriteExecutor;
+    // Commits are shared between diffs, so they are written by one thread at a time to prevent
+    // concurrent writers from inserting the same commit
+    private final Object commitLock = new Object();
 
+    // True if each diff should be written in a single transaction using batched statements
+    private final boolean batchedWrites;
+    private final ConnectionPool connectionPool;
 
     public MySQLOutputWriter(String propertiesPath) throws IOException {
         final Properties properties = new Properties();
         properties.load(new FileInputStream(new File(propertiesPath)));
 
-        this.dbURI = String.format("jdbc:mysql://%s:%s/%s?useSSL=%s",
-                properties.getProperty("URL"),
-                properties.getProperty("PORT"),
-                properties.getProperty("DB"),
-                properties.getProperty("USE_SSL"));
+        this.dbURI = getDatabaseURI(properties);
         this.user = properties.getProperty("USERNAME");
         this.pass = properties.getProperty("PASSWORD");
         final int maxConnections = Integer.parseInt(properties.getProperty("MAX_CONNECTIONS", "151"));
-        this.finalWriteExecutor = new ScheduledThreadPoolExecutor( Math.max(1, maxConnections - 1));
+        this.batchedWrites = Boolean.parseBoolean(properties.getProperty("BATCHED_WRITES", "false"));
+        this.connectionPool = new ConnectionPool(this.dbURI, this.user, this.pass, maxConnections);
 
         try {
             // Load driver
@@ -52,60 +59,267 @@ public class MySQLOutputWriter implements OutputWriter {
         }
     }
 
+    /**
+     * @param properties the database properties
+     * @return the JDBC URI of the database
+     */
+    static String getDatabaseURI(Properties properties) {
+        // Batched statements are rewritten as multi-row inserts by the driver
+        return String.format("jdbc:mysql://%s:%s/%s?useSSL=%s&rewriteBatchedStatements=true",
+                properties.getProperty("URL"),
+                properties.getProperty("PORT"),
+                properties.getProperty("DB"),
+                properties.getProperty("USE_SSL"));
+    }
+
+    /**
+     * Writes the diff before returning. This writer may be used by several threads at once.
+     */
     @Override
     public void writeDiff(SATDDifference diff) throws IOException {
-        Connection conn = null;
+        final Connection conn;
+        try {
+            conn = this.connectionPool.getConnection();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
         try {
-            // Write the first part synchronously, because we don't want it duplicated
-            // and duplication is possible.
-            conn = DriverManager.getConnection(this.dbURI, this.user, this.pass);
-            int projectId;
-            // Cache project key to shorten each write by one query
-            if( this.cachedProjectKeys.containsKey(diff.getProjectName()) ) {
-                projectId = this.cachedProjectKeys.get(diff.getProjectName());
+            final int projectId;
+            final String oldCommitId;
+            final String newCommitId;
+            synchronized (this.commitLock) {
+                projectId = this.getCachedProjectId(conn, diff);
+                oldCommitId = this.getCommitId(conn, new CommitMetaData(diff.getOldCommit()), projectId);
+                newCommitId = this.getCommitId(conn, new CommitMetaData(diff.getNewCommit()), projectId);
+            }
+            if( this.batchedWrites ) {
+                this.writeSATDInTransaction(conn, diff, newCommitId, oldCommitId, projectId);
             } else {
-                projectId = this.getProjectId(conn, diff.getProjectName(), diff.getProjectURI());
-                this.cachedProjectKeys.put(diff.getProjectName(), projectId);
+                for( final SATDInstance satdInstance : diff.getSatdInstances() ) {
+                    final int oldFileId = this.getSATDInFileId(conn, satdInstance, true);
+                    final int newFileId = this.getSATDInFileId(conn, satdInstance, false);
+                    this.getSATDInstanceId(conn, satdInstance, newCommitId, oldCommitId, newFileId, oldFileId, projectId);
+                }
+            }
+            this.connectionPool.releaseConnection(conn);
+        } catch (SQLException e) {
+            ConnectionPool.closeConnection(conn);
+            // Issues with SQL will be wrapped in an IOException to maintain interface consistency
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Writes the SATD instances of a diff in a single transaction. Rather than querying for
+     * and inserting each SATD instance individually, every row needed for the diff is queried
+     * for at once and the missing rows are inserted in batches.
+     * @param conn The DB Connection
+     * @param diff the diff to write
+     * @throws SQLException thrown if the instances could not be written, in which case none of them are written
+     */
+    private void writeSATDInTransaction(Connection conn, SATDDifference diff,
+                                        String newCommitHash, String oldCommitHash, int projectId) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            final Map<SATDInFileKey, Integer> fileIds = this.getSATDInFileIds(conn, diff.getSatdInstances());
+            this.insertSATDInstances(conn, diff.getSatdInstances(), fileIds, newCommitHash, oldCommitHash, projectId);
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                System.err.println("Error rolling back SQL transaction");
+            }
+            throw e;
+        }
+        conn.setAutoCommit(true);
+    }
+
+    /**
+     * Gets the IDs of the SATD file instances of every SATD instance, inserting any that
+     * are not present
+     * @param conn The DB Connection
+     * @param satdInstances the SATD instances in a diff
+     * @return a map from each file instance to its ID
+     * @throws SQLException Thrown if any SQL exceptions are encountered.
+     */
+    private Map<SATDInFileKey, Integer> getSATDInFileIds(Connection conn, List<SATDInstance> satdInstances)
+            throws SQLException {
+        // Comments of each distinct file instance, in the order they are first referenced
+        final Map<SATDInFileKey, GroupedComment> fileInstances = new LinkedHashMap<>();
+        for( final SATDInstance satdInstance : satdInstances ) {
+            fileInstances.putIfAbsent(SATDInFileKey.of(satdInstance, true),
+                    satdInstance.getOldInstance().getComment());
+            fileInstances.putIfAbsent(SATDInFileKey.of(satdInstance, false),
+                    satdInstance.getNewInstance().getComment());
+        }
+        // Find the file instances written by previous diffs
+        final Map<SATDInFileKey, Integer> fileIds =
+                this.findSATDInFileIds(conn, new ArrayList<>(fileInstances.keySet()));
+
+        // Insert the remaining file instances
+        final List<SATDInFileKey> missingKeys = new ArrayList<>();
+        final Set<Integer> insertedIds = new HashSet<>();
+        try (final PreparedStatement updateStmt = conn.prepareStatement(
+                "INSERT INTO SATDInFile(f_comment, f_comment_type, f_path, start_line, end_line, " +
+                        "containing_class, containing_method) " +
+                        "VALUES (?,?,?,?,?,?,?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for( final Map.Entry<SATDInFileKey, GroupedComment> fileInstance : fileInstances.entrySet() ) {
+                if( !fileIds.containsKey(fileInstance.getKey()) ) {
+                    updateStmt.setString(1, fileInstance.getKey().getComment()); // f_comment
+                    updateStmt.setString(2, fileInstance.getValue().getCommentType()); // f_comment_type
+                    updateStmt.setString(3, fileInstance.getKey().getPath()); // f_path
+                    updateStmt.setInt(4, fileInstance.getKey().getStartLine()); // start_line
+                    updateStmt.setInt(5, fileInstance.getKey().getEndLine()); // end_line
+                    updateStmt.setString(6, fileInstance.getValue().getContainingClass());
+                    updateStmt.setString(7, fileInstance.getValue().getContainingMethod());
+                    updateStmt.addBatch();
+                    missingKeys.add(fileInstance.getKey());
+                }
+            }
+            if( !missingKeys.isEmpty() ) {
+                updateStmt.executeBatch();
+                final ResultSet updateRes = updateStmt.getGeneratedKeys();
+                while( updateRes.next() ) {
+                    insertedIds.add(updateRes.getInt(1));
+                }
+            }
+        }
+        if( !missingKeys.isEmpty() ) {
+            // Keys the database compares as equal, such as those differing only in case, share
+            // the first row inserted for them, as they would if each were written one at a time
+            final Map<SATDInFileKey, Integer> missingIds = this.findSATDInFileIds(conn, missingKeys);
+            if( missingIds.size() < missingKeys.size() ) {
+                throw new SQLException("Could not obtain a file instance ID.");
             }
-            final String oldCommitId = this.getCommitId(conn, new CommitMetaData(diff.getOldCommit()), projectId);
-            final String newCommitId = this.getCommitId(conn, new CommitMetaData(diff.getNewCommit()), projectId);
+            fileIds.putAll(missingIds);
+            insertedIds.removeAll(missingIds.values());
+            if( !insertedIds.isEmpty() ) {
+                try (final PreparedStatement deleteStmt = conn.prepareStatement(
+                        "DELETE FROM SATDInFile WHERE f_id IN (" +
+                                String.join(",", Collections.nCopies(insertedIds.size(), "?")) + ")")) {
+                    int param = 1;
+                    for( final int unusedId : insertedIds ) {
+                        deleteStmt.setInt(param++, unusedId); // f_id
+                    }
+                    deleteStmt.executeUpdate();
+                }
+            }
+        }
+        return fileIds;
+    }
 
-            // Now finish the remaining writes async and allow time for the previous writer to complete.
-            final Connection asyncConn = conn;
-            conn = null;
-            final Thread writeLastAsync = new Thread(() -> {
-                try {
-                    for (SATDInstance satdInstance : diff.getSatdInstances()) {
-                        final int oldFileId = this.getSATDInFileId(asyncConn, satdInstance, true);
-                        final int newFileId = this.getSATDInFileId(asyncConn, satdInstance, false);
-                        this.getSATDInstanceId(asyncConn, satdInstance, newCommitId, oldCommitId, newFileId, oldFileId, projectId);
+    /**
+     * Finds the first SATD file instance matching each key. Each key is compared by the database
+     * with the same condition used by getSATDInFileId, so rows which are only equal under the
+     * column's collation (such as comments differing in case or trailing spaces) are found for
+     * the same keys as when instances are written one at a time.
+     * @param conn The DB Connection
+     * @param keys the keys of the file instances to find
+     * @return a map from each key found to the lowest ID of the rows matching it
+     * @throws SQLException Thrown if any SQL exceptions are encountered.
+     */
+    private Map<SATDInFileKey, Integer> findSATDInFileIds(Connection conn, List<SATDInFileKey> keys)
+            throws SQLException {
+        final Map<SATDInFileKey, Integer> fileIds = new HashMap<>();
+        for( int i = 0; i < keys.size(); i += MAX_LOOKUPS_PER_QUERY ) {
+            final List<SATDInFileKey> lookups = keys.subList(i, Math.min(keys.size(), i + MAX_LOOKUPS_PER_QUERY));
+            // One column for each key, holding the lowest ID of the rows matching it
+            try (final PreparedStatement queryStmt = conn.prepareStatement(
+                    "SELECT " + String.join(",", Collections.nCopies(lookups.size(),
+                            "MIN(CASE WHEN f_comment=? AND f_path=? AND start_line=? AND end_line=? " +
+                                    "THEN f_id END)")) +
+                            " FROM SATDInFile WHERE (f_comment, f_path, start_line, end_line) IN (" +
+                            String.join(",", Collections.nCopies(lookups.size(), "(?,?,?,?)")) + ")")) {
+                int param = 1;
+                // Each key is bound once for its column, and once for the rows to search
+                for( int pass = 0; pass < 2; pass++ ) {
+                    for( final SATDInFileKey key : lookups ) {
+                        queryStmt.setString(param++, key.getComment()); // f_comment
+                        queryStmt.setString(param++, key.getPath()); // f_path
+                        queryStmt.setInt(param++, key.getStartLine()); // start_line
+                        queryStmt.setInt(param++, key.getEndLine()); // end_line
                     }
-                } catch (SQLException e) {
-                    throw new UncheckedIOException(new IOException(e));
-                } finally {
-                    try {
-                        asyncConn.close();
-                    } catch (SQLException e) {
-                        System.err.println("Error closing SQL connection in thread");
+                }
+                final ResultSet res = queryStmt.executeQuery();
+                if( res.next() ) {
+                    for( int column = 1; column <= lookups.size(); column++ ) {
+                        final int fileId = res.getInt(column);
+                        if( !res.wasNull() ) {
+                            fileIds.putIfAbsent(lookups.get(column - 1), fileId);
+                        }
                     }
                 }
-            });
-            finalWriteExecutor.schedule(writeLastAsync, 100, TimeUnit.MILLISECONDS);
+            }
+        }
+        return fileIds;
+    }
 
-        } catch (SQLException e) {
-            // Issues with SQL will be wrapped in an IOException to maintain interface consistency
-            throw new IOException(e);
-        } finally {
-            if( conn != null ) {
-                try {
-                    conn.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing SQL connection");
+    /**
+     * Inserts every SATD instance in a diff that is not already present
+     * @param conn The DB Connection
+     * @param satdInstances the SATD instances in a diff
+     * @param fileIds the IDs of each SATD instance's file instances
+     * @throws SQLException Thrown if any SQL exceptions are encountered.
+     */
+    private void insertSATDInstances(Connection conn, List<SATDInstance> satdInstances,
+                                     Map<SATDInFileKey, Integer> fileIds,
+                                     String newCommitHash, String oldCommitHash, int projectId) throws SQLException {
+        // The old and new file IDs of each instance already written for these commits
+        final Set<List<Integer>> writtenFilePairs = new HashSet<>();
+        try (final PreparedStatement queryStmt = conn.prepareStatement(
+                "SELECT SATD.first_file, SATD.second_file FROM SATD WHERE " +
+                        "SATD.first_commit=? AND SATD.second_commit=?")) {
+            queryStmt.setString(1, oldCommitHash); // first_commit
+            queryStmt.setString(2, newCommitHash); // second_commit
+            final ResultSet res = queryStmt.executeQuery();
+            while( res.next() ) {
+                writtenFilePairs.add(Arrays.asList(res.getInt(1), res.getInt(2)));
+            }
+        }
+        try (final PreparedStatement updateStmt = conn.prepareStatement(
+                "INSERT INTO SATD(first_commit, second_commit, first_file, second_file, " +
+                        "resolution, satd_instance_id, p_id, parent_instance_id) " +
+                        "VALUES (?,?,?,?,?,?,?,?)")) {
+            boolean hasBatch = false;
+            for( final SATDInstance satdInstance : satdInstances ) {
+                final int oldFileId = fileIds.get(SATDInFileKey.of(satdInstance, true));
+                final int newFileId = fileIds.get(SATDInFileKey.of(satdInstance, false));
+                if( writtenFilePairs.add(Arrays.asList(oldFileId, newFileId)) ) {
+                    updateStmt.setString(1, oldCommitHash); // first_commit
+                    updateStmt.setString(2, newCommitHash); // second_commit
+                    updateStmt.setInt(3, oldFileId); // first_file
+                    updateStmt.setInt(4, newFileId); // second_file
+                    updateStmt.setString(5, satdInstance.getResolution().name()); // resolution
+                    updateStmt.setInt(6, satdInstance.getId()); // satd_instance_id
+                    updateStmt.setInt(7, projectId); // p_id
+                    updateStmt.setInt(8, satdInstance.getParentId()); // parent_instance_id
+                    updateStmt.addBatch();
+                    hasBatch = true;
                 }
             }
+            if( hasBatch ) {
+                updateStmt.executeBatch();
+            }
         }
     }
 
+    /**
+     * Gets the ID for the diff's project, caching the key to shorten each write by one query
+     * @param conn The DB Connection
+     * @param diff the diff being written
+     * @return The ID for the associated project
+     * @throws SQLException thrown if any errors occur in SQL obtaining the project's ID
+     */
+    private int getCachedProjectId(Connection conn, SATDDifference diff) throws SQLException {
+        if( !this.cachedProjectKeys.containsKey(diff.getProjectName()) ) {
+            this.cachedProjectKeys.put(diff.getProjectName(),
+                    this.getProjectId(conn, diff.getProjectName(), diff.getProjectURI()));
+        }
+        return this.cachedProjectKeys.get(diff.getProjectName());
+    }
+
     /**
      * Gets the ID for the project and adds the project to the database if it is not present.
      * @param conn The DB Connection
@@ -117,18 +331,19 @@ public class MySQLOutputWriter implements OutputWriter {
      */
     private int getProjectId(Connection conn, String projectName, String projectUrl) throws SQLException {
         // Make query if Project exists
-        final PreparedStatement queryStmt = conn.prepareStatement(
-                "SELECT Projects.p_id FROM Projects WHERE Projects.p_name=?;");
-        queryStmt.setString(1, projectName); // p_name
-        final ResultSet res = queryStmt.executeQuery();
-        if( res.next() ) {
-            // Return the result if one was found
-            return res.getInt(1);
-        } else {
-            // Otherwise, add it and then return the newly generated key
-            final PreparedStatement updateStmt = conn.prepareStatement(
-                    "INSERT INTO Projects(p_name, p_url) VALUES (?, ?);",
-                    Statement.RETURN_GENERATED_KEYS);
+        try (final PreparedStatement queryStmt = conn.prepareStatement(
+                "SELECT Projects.p_id FROM Projects WHERE Projects.p_name=?;")) {
+            queryStmt.setString(1, projectName); // p_name
+            final ResultSet res = queryStmt.executeQuery();
+            if( res.next() ) {
+                // Return the result if one was found
+                return res.getInt(1);
+            }
+        }
+        // Otherwise, add it and then return the newly generated key
+        try (final PreparedStatement updateStmt = conn.prepareStatement(
+                "INSERT INTO Projects(p_name, p_url) VALUES (?, ?);",
+                Statement.RETURN_GENERATED_KEYS)) {
             updateStmt.setString(1, projectName); // p_name
             updateStmt.setString(2, projectUrl); // p_url
             updateStmt.executeUpdate();
@@ -160,28 +375,27 @@ public class MySQLOutputWriter implements OutputWriter {
                 : satdInstance.getEndLineNumberNewFile();
         final GroupedComment comment = useOld ? satdInstance.getOldInstance().getComment() :
                 satdInstance.getNewInstance().getComment();
-        final PreparedStatement queryStmt = conn.prepareStatement(
+        try (final PreparedStatement queryStmt = conn.prepareStatement(
                 "SELECT SATDInFile.f_id FROM SATDInFile WHERE " +
                 "SATDInFile.f_comment=? AND SATDInFile.f_path=? AND " +
-                "SATDInFile.start_line=? AND SATDInFile.end_line=?");
-        queryStmt.setString(1, shortenStringToLength(
-                comment.getComment().replace("\"", "\\\""), COMMENTS_MAX_CHARS)); // f_comment
-        queryStmt.setString(2, filePath); // f_path
-        queryStmt.setInt(3, startLineNumber); // start_line
-        queryStmt.setInt(4, endLineNumber); // end_line
-        final ResultSet res = queryStmt.executeQuery();
-        if( res.next() ) {
-            // Return the result if one was found
-            return res.getInt(1);
-        } else {
-            // Otherwise, add it and then return the newly generated key
-            final PreparedStatement updateStmt = conn.prepareStatement(
-                    "INSERT INTO SATDInFile(f_comment, f_comment_type, f_path, start_line, end_line, " +
-                            "containing_class, containing_method) " +
-                            "VALUES (?,?,?,?,?,?,?);",
-                    Statement.RETURN_GENERATED_KEYS);
-            updateStmt.setString(1, shortenStringToLength(
-                    comment.getComment().replace("\"", "\\\""), COMMENTS_MAX_CHARS)); // f_comment
+                "SATDInFile.start_line=? AND SATDInFile.end_line=?")) {
+            queryStmt.setString(1, SATDInFileKey.formatComment(comment.getComment())); // f_comment
+            queryStmt.setString(2, filePath); // f_path
+            queryStmt.setInt(3, startLineNumber); // start_line
+            queryStmt.setInt(4, endLineNumber); // end_line
+            final ResultSet res = queryStmt.executeQuery();
+            if( res.next() ) {
+                // Return the result if one was found
+                return res.getInt(1);
+            }
+        }
+        // Otherwise, add it and then return the newly generated key
+        try (final PreparedStatement updateStmt = conn.prepareStatement(
+                "INSERT INTO SATDInFile(f_comment, f_comment_type, f_path, start_line, end_line, " +
+                        "containing_class, containing_method) " +
+                        "VALUES (?,?,?,?,?,?,?);",
+                Statement.RETURN_GENERATED_KEYS)) {
+            updateStmt.setString(1, SATDInFileKey.formatComment(comment.getComment())); // f_comment
             updateStmt.setString(2, comment.getCommentType()); // f_comment_type
             updateStmt.setString(3, filePath); // f_path
             updateStmt.setInt(4, startLineNumber); // start_line
@@ -200,25 +414,25 @@ public class MySQLOutputWriter implements OutputWriter {
     private int getSATDInstanceId(Connection conn, SATDInstance satdInstance,
                                   String newCommitHash, String oldCommitHash,
                                   int newFileId, int oldFileId, int projectId) throws SQLException{
-        final PreparedStatement queryStmt = conn.prepareStatement(
+        try (final PreparedStatement queryStmt = conn.prepareStatement(
                 "SELECT SATD.satd_id FROM SATD WHERE SATD.first_commit=? AND " +
-                        "SATD.second_commit=? AND SATD.first_file=? AND SATD.second_file=?"
-        );
-        queryStmt.setString(1, oldCommitHash); // first_tag_id
-        queryStmt.setString(2, newCommitHash); // second_tag_id
-        queryStmt.setInt(3, oldFileId); // first_file
-        queryStmt.setInt(4, newFileId); // second_file
-        final ResultSet res = queryStmt.executeQuery();
-        if( res.next() ) {
-            // Return the result if one was found
-            return res.getInt(1);
-        } else {
-            // Otherwise, add it and then return the newly generated key
-            final PreparedStatement updateStmt = conn.prepareStatement(
-                    "INSERT INTO SATD(first_commit, second_commit, first_file, second_file, " +
-                            "resolution, satd_instance_id, p_id, parent_instance_id) " +
-                            "VALUES (?,?,?,?,?,?,?,?)",
-                    Statement.RETURN_GENERATED_KEYS);
+                        "SATD.second_commit=? AND SATD.first_file=? AND SATD.second_file=?")) {
+            queryStmt.setString(1, oldCommitHash); // first_tag_id
+            queryStmt.setString(2, newCommitHash); // second_tag_id
+            queryStmt.setInt(3, oldFileId); // first_file
+            queryStmt.setInt(4, newFileId); // second_file
+            final ResultSet res = queryStmt.executeQuery();
+            if( res.next() ) {
+                // Return the result if one was found
+                return res.getInt(1);
+            }
+        }
+        // Otherwise, add it and then return the newly generated key
+        try (final PreparedStatement updateStmt = conn.prepareStatement(
+                "INSERT INTO SATD(first_commit, second_commit, first_file, second_file, " +
+                        "resolution, satd_instance_id, p_id, parent_instance_id) " +
+                        "VALUES (?,?,?,?,?,?,?,?)",
+                Statement.RETURN_GENERATED_KEYS)) {
             updateStmt.setString(1, oldCommitHash); // first_commit
             updateStmt.setString(2, newCommitHash); // second_commit
             updateStmt.setInt(3, oldFileId); // first_file
@@ -246,34 +460,37 @@ public class MySQLOutputWriter implements OutputWriter {
     private String getCommitId(Connection conn, CommitMetaData commitMetaData, int projectId) throws SQLException {
         try {
             // Get CommitMetaData if not inserted already
-            final PreparedStatement queryStmt = conn.prepareStatement(
-                    "SELECT * FROM Commits WHERE commit_hash=?"
-            );
-            queryStmt.setString(1, commitMetaData.getHash()); // commit_hash
-            final ResultSet res = queryStmt.executeQuery();
-            if (!res.next()) {
+            final boolean isStored;
+            try (final PreparedStatement queryStmt = conn.prepareStatement(
+                    "SELECT * FROM Commits WHERE commit_hash=? AND p_id=?")) {
+                queryStmt.setString(1, commitMetaData.getHash()); // commit_hash
+                queryStmt.setInt(2, projectId); // p_id
+                isStored = queryStmt.executeQuery().next();
+            }
+            if (!isStored) {
                 // Add the diff data if it is not found
-                final PreparedStatement updateStmt = conn.prepareStatement(
+                try (final PreparedStatement updateStmt = conn.prepareStatement(
                         "INSERT INTO Commits(commit_hash, author_name, author_email, " +
                                 "committer_name, committer_email, author_date, commit_date, p_id) " +
-                                "VALUES (?,?,?,?,?,?,?,?)");
-                updateStmt.setString(1, commitMetaData.getHash()); // commit_hash
-                updateStmt.setString(2, commitMetaData.getAuthorName()); // author_name
-                updateStmt.setString(3, commitMetaData.getAuthorEmail()); // author_email
-                updateStmt.setString(4, commitMetaData.getCommitterName()); // committer_name
-                updateStmt.setString(5, commitMetaData.getCommitterEmail()); // committer_email
-                if( commitMetaData.getAuthorDate() != null ) {
-                    updateStmt.setTimestamp(6, new Timestamp(commitMetaData.getAuthorDate().getTime()), Calendar.getInstance()); // author_date
-                } else {
-                    updateStmt.setTimestamp(6, null);
-                }
-                if( commitMetaData.getCommitDate() != null ) {
-                    updateStmt.setTimestamp(7, new Timestamp(commitMetaData.getCommitDate().getTime())); // commit_date
-                } else {
-                    updateStmt.setTimestamp(7, null);
+                                "VALUES (?,?,?,?,?,?,?,?)")) {
+                    updateStmt.setString(1, commitMetaData.getHash()); // commit_hash
+                    updateStmt.setString(2, commitMetaData.getAuthorName()); // author_name
+                    updateStmt.setString(3, commitMetaData.getAuthorEmail()); // author_email
+                    updateStmt.setString(4, commitMetaData.getCommitterName()); // committer_name
+                    updateStmt.setString(5, commitMetaData.getCommitterEmail()); // committer_email
+                    if( commitMetaData.getAuthorDate() != null ) {
+                        updateStmt.setTimestamp(6, new Timestamp(commitMetaData.getAuthorDate().getTime()), Calendar.getInstance()); // author_date
+                    } else {
+                        updateStmt.setTimestamp(6, null);
+                    }
+                    if( commitMetaData.getCommitDate() != null ) {
+                        updateStmt.setTimestamp(7, new Timestamp(commitMetaData.getCommitDate().getTime())); // commit_date
+                    } else {
+                        updateStmt.setTimestamp(7, null);
+                    }
+                    updateStmt.setInt(8, projectId);
+                    updateStmt.executeUpdate();
                 }
-                updateStmt.setInt(8, projectId);
-                updateStmt.executeUpdate();
             }
         } catch (SQLException e) {
             System.err.println("SQL Error encountered when storing diff metadata.");
@@ -282,15 +499,13 @@ public class MySQLOutputWriter implements OutputWriter {
         return commitMetaData.getHash();
     }
 
-    private static String shortenStringToLength(String str, int length) {
-        return str.substring(0, Math.min(str.length(), length));
+    @Override
+    public void flush() {
+        // Each diff is written before writeDiff returns
     }
 
     @Override
     public void close() {
-        // Shutdown the executor and then run each remaining task
-        this.finalWriteExecutor.shutdownNow().forEach(Runnable::run);
+        this.connectionPool.close();
     }
-
-
 }
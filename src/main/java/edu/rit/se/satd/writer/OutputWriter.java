@@ -13,6 +13,12 @@ public interface OutputWriter {
      */
     void writeDiff(SATDDifference diff) throws IOException;
 
+    /**
+     * Blocks until every diff previously given to the writer has been written to the output
+     * @throws IOException thrown if an error is encountered completing the writes
+     */
+    void flush() throws IOException;
+
     /**
      * Finishes any write processes and terminated the writer
      */
@@ -0,0 +1,202 @@
+package edu.rit.se.satd.writer;
+
+import edu.rit.se.satd.management.QueuedOutputWriterMXBean;
+import edu.rit.se.satd.metrics.Count;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
+import edu.rit.se.satd.model.SATDDifference;
+import lombok.AllArgsConstructor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An OutputWriter which queues diffs to be written by a fixed number of writer threads, so
+ * that mining can continue while diffs are being written. The queue is bounded, so writeDiff
+ * blocks when the writer threads fall behind rather than holding every mined diff in memory.
+ *
+ * Closing this writer stops its threads, but does not close the writer it wraps.
+ */
+public class QueuedOutputWriter implements OutputWriter, QueuedOutputWriterMXBean {
+
+    /**
+     * Receives the outcome of each queued diff. Called from the writer threads.
+     */
+    public interface WriteListener {
+
+        void onDiffWritten(SATDDifference diff);
+
+        void onWriteFailed(SATDDifference diff, IOException e);
+    }
+
+    private final OutputWriter writer;
+    private final WriteListener listener;
+
+    private final BlockingQueue<QueuedDiff> queue;
+    private final ExecutorService writerThreads;
+    private final int nWriterThreads;
+
+    // The number of diffs ever queued, which numbers each queued diff
+    private long nWritesQueued = 0;
+    // The numbers of the diffs which have been queued but have not finished being written
+    private final NavigableSet<Long> unfinishedWrites = new TreeSet<>();
+    private boolean closed = false;
+
+    private final AtomicLong nDiffsWritten = new AtomicLong();
+    private final AtomicLong nWriteFailures = new AtomicLong();
+
+    /**
+     * @param writer the writer to write each queued diff to. Must be safe to use from
+     *               multiple threads if nThreads is greater than 1
+     * @param queueDepth the most diffs that may wait to be written before writeDiff blocks
+     * @param nThreads the number of threads writing diffs
+     * @param listener notified once each diff has been written or has failed to write
+     */
+    public QueuedOutputWriter(OutputWriter writer, int queueDepth, int nThreads, WriteListener listener) {
+        this.writer = writer;
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueDepth));
+        this.nWriterThreads = Math.max(1, nThreads);
+        this.writerThreads = Executors.newFixedThreadPool(this.nWriterThreads);
+        for( int i = 0; i < this.nWriterThreads; i++ ) {
+            this.writerThreads.submit(this::writeQueuedDiffs);
+        }
+    }
+
+    /**
+     * Queues the diff to be written, waiting for space in the queue if it is full
+     */
+    @Override
+    public void writeDiff(SATDDifference diff) throws IOException {
+        final long writeNumber;
+        synchronized (this) {
+            if( this.closed ) {
+                throw new IOException("Cannot write a diff after the writer is closed");
+            }
+            writeNumber = this.nWritesQueued++;
+            this.unfinishedWrites.add(writeNumber);
+        }
+        try {
+            this.queue.put(new QueuedDiff(writeNumber, diff));
+        } catch (InterruptedException e) {
+            this.finishWrite(writeNumber);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to queue a diff");
+        }
+    }
+
+    /**
+     * Waits for every diff queued before this call to be written, then flushes the wrapped
+     * writer. Diffs queued while waiting are not waited for, so mining may continue meanwhile.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (this) {
+            final long nWritesToFinish = this.nWritesQueued;
+            while( !this.unfinishedWrites.isEmpty() && this.unfinishedWrites.first() < nWritesToFinish ) {
+                try {
+                    this.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for queued diffs to be written");
+                }
+            }
+        }
+        this.writer.flush();
+    }
+
+    /**
+     * Waits for every queued diff to be written and stops the writer threads
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+        }
+        try {
+            this.flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing queued diffs: " + e.getLocalizedMessage());
+        }
+        // Every thread is now waiting on the empty queue
+        this.writerThreads.shutdownNow();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return this.queue.size() + this.queue.remainingCapacity();
+    }
+
+    @Override
+    public synchronized int getPendingWrites() {
+        return this.unfinishedWrites.size();
+    }
+
+    @Override
+    public int getWriterThreads() {
+        return this.nWriterThreads;
+    }
+
+    @Override
+    public long getDiffsWritten() {
+        return this.nDiffsWritten.get();
+    }
+
+    @Override
+    public long getWriteFailures() {
+        return this.nWriteFailures.get();
+    }
+
+    private void writeQueuedDiffs() {
+        while( !Thread.currentThread().isInterrupted() ) {
+            final QueuedDiff queuedDiff;
+            try {
+                queuedDiff = this.queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            final SATDDifference diff = queuedDiff.diff;
+            try {
+                try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.WRITE) ) {
+                    this.writer.writeDiff(diff);
+                }
+                this.nDiffsWritten.incrementAndGet();
+                this.listener.onDiffWritten(diff);
+            } catch (IOException e) {
+                this.nWriteFailures.incrementAndGet();
+                MinerMetrics.count(Count.WRITE_FAILURES, 1);
+                this.listener.onWriteFailed(diff, e);
+            } catch (RuntimeException e) {
+                // Keep the thread alive so the remaining diffs are still written
+                this.nWriteFailures.incrementAndGet();
+                MinerMetrics.count(Count.WRITE_FAILURES, 1);
+                this.listener.onWriteFailed(diff, new IOException(e));
+            } finally {
+                this.finishWrite(queuedDiff.writeNumber);
+            }
+        }
+    }
+
+    private synchronized void finishWrite(long writeNumber) {
+        this.unfinishedWrites.remove(writeNumber);
+        this.notifyAll();
+    }
+
+    @AllArgsConstructor
+    private static class QueuedDiff {
+        private final long writeNumber;
+        private final SATDDifference diff;
+    }
+}
@@ -0,0 +1,43 @@
+package edu.rit.se.satd.writer;
+
+import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.model.SATDInstance;
+import lombok.Value;
+
+/**
+ * The values which identify a row of the SATDInFile table
+ */
+@Value
+class SATDInFileKey {
+
+    private static final int COMMENTS_MAX_CHARS = 4096;
+
+    String comment;
+    String path;
+    int startLine;
+    int endLine;
+
+    /**
+     * @param satdInstance an SATD instance
+     * @param useOld True if the old file info in the SATDInstance should be used, else False
+     * @return the key of the instance's old or new file instance
+     */
+    static SATDInFileKey of(SATDInstance satdInstance, boolean useOld) {
+        final GroupedComment comment = useOld ? satdInstance.getOldInstance().getComment() :
+                satdInstance.getNewInstance().getComment();
+        return new SATDInFileKey(
+                formatComment(comment.getComment()),
+                useOld ? satdInstance.getOldInstance().getFileName() : satdInstance.getNewInstance().getFileName(),
+                useOld ? satdInstance.getStartLineNumberOldFile() : satdInstance.getStartLineNumberNewFile(),
+                useOld ? satdInstance.getEndLineNumberOldFile() : satdInstance.getEndLineNumberNewFile());
+    }
+
+    /**
+     * @param comment the text of a comment
+     * @return the comment as it is stored in the f_comment column
+     */
+    static String formatComment(String comment) {
+        final String escaped = comment.replace("\"", "\\\"");
+        return escaped.substring(0, Math.min(escaped.length(), COMMENTS_MAX_CHARS));
+    }
+}
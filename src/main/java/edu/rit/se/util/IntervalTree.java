@@ -0,0 +1,111 @@
+package edu.rit.se.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * An immutable index of values by the range of lines they span, used to find the first
+ * value whose range overlaps a given range without checking every value.
+ *
+ * Ranges are sorted by their start, and form an implicit balanced binary tree in which each
+ * node is the middle range of its portion of the array. Each node also records the greatest end
+ * and the earliest position of any range beneath it, so subtrees that cannot contain an earlier
+ * overlapping range are skipped.
+ * @param <T> the type of value being indexed
+ */
+public class IntervalTree<T> {
+
+    private final List<T> values;
+    private final int[] starts;
+    private final int[] ends;
+    // The position in values of each range
+    private final int[] positions;
+    // The greatest end of any range in the subtree rooted at each node
+    private final int[] maxEnds;
+    // The least position of any range in the subtree rooted at each node
+    private final int[] minPositions;
+
+    /**
+     * @param values the values to index
+     * @param starts the first line spanned by each value
+     * @param ends the last line spanned by each value
+     */
+    public IntervalTree(List<T> values, int[] starts, int[] ends) {
+        if( values.size() != starts.length || values.size() != ends.length ) {
+            throw new IllegalArgumentException("A start and end must be given for each value");
+        }
+        this.values = values;
+        final Integer[] byStart = new Integer[values.size()];
+        Arrays.setAll(byStart, i -> i);
+        Arrays.sort(byStart, Comparator.comparingInt(i -> starts[i]));
+
+        this.starts = new int[byStart.length];
+        this.ends = new int[byStart.length];
+        this.positions = new int[byStart.length];
+        for( int i = 0; i < byStart.length; i++ ) {
+            this.starts[i] = starts[byStart[i]];
+            this.ends[i] = ends[byStart[i]];
+            this.positions[i] = byStart[i];
+        }
+        this.maxEnds = new int[byStart.length];
+        this.minPositions = new int[byStart.length];
+        this.build(0, byStart.length);
+    }
+
+    /**
+     * Finds the value appearing earliest in the indexed list whose range overlaps the given range
+     * @param start the starting bound
+     * @param end the ending bound
+     * @return the first overlapping value, or empty if no value overlaps the range
+     */
+    public Optional<T> findFirstOverlapping(int start, int end) {
+        final int first = this.search(0, this.starts.length, start, end, Integer.MAX_VALUE);
+        return first == Integer.MAX_VALUE ? Optional.empty() : Optional.of(this.values.get(first));
+    }
+
+    private void build(int low, int high) {
+        if( low >= high ) {
+            return;
+        }
+        final int mid = (low + high) >>> 1;
+        this.build(low, mid);
+        this.build(mid + 1, high);
+        this.maxEnds[mid] = this.ends[mid];
+        this.minPositions[mid] = this.positions[mid];
+        if( low < mid ) {
+            final int left = (low + mid) >>> 1;
+            this.maxEnds[mid] = Integer.max(this.maxEnds[mid], this.maxEnds[left]);
+            this.minPositions[mid] = Integer.min(this.minPositions[mid], this.minPositions[left]);
+        }
+        if( mid + 1 < high ) {
+            final int right = (mid + 1 + high) >>> 1;
+            this.maxEnds[mid] = Integer.max(this.maxEnds[mid], this.maxEnds[right]);
+            this.minPositions[mid] = Integer.min(this.minPositions[mid], this.minPositions[right]);
+        }
+    }
+
+    /**
+     * @return the least position of a range overlapping the bounds in the subtree, or best if
+     * there is no earlier overlapping range
+     */
+    private int search(int low, int high, int start, int end, int best) {
+        if( low >= high ) {
+            return best;
+        }
+        final int mid = (low + high) >>> 1;
+        if( this.minPositions[mid] >= best || this.maxEnds[mid] < start ) {
+            return best;
+        }
+        if( JavaParseUtil.isRangeBetweenBounds(this.starts[mid], this.ends[mid], start, end) ) {
+            best = Integer.min(best, this.positions[mid]);
+        }
+        best = this.search(low, mid, start, end, best);
+        // Every range to the right starts at or after this one
+        if( this.starts[mid] <= end ) {
+            best = this.search(mid + 1, high, start, end, best);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,696 @@
+package edu.rit.se.util;
+
+import edu.rit.se.satd.comment.model.FileStructure;
+import edu.rit.se.satd.comment.model.FileStructure.ClassSpan;
+import edu.rit.se.satd.comment.model.FileStructure.MethodSpan;
+import edu.rit.se.satd.comment.model.GroupedComment;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static edu.rit.se.satd.comment.model.GroupedComment.TYPE_COMMENTED_SOURCE;
+
+/**
+ * A lightweight alternative to JavaParser for finding the comments in a java file.
+ *
+ * Rather than building a full syntax tree, the file is split into tokens and only the
+ * declarations needed to find the containing class and method of each comment are recognized.
+ * Comments are attributed exactly as they would be by GroupedComment.fromJavaParserComment.
+ *
+ * Any syntax that the lexer cannot be certain it handles the same way as JavaParser causes an
+ * UnsupportedSyntaxException to be thrown, so the file can be parsed with JavaParser instead.
+ * Files that JavaParser would reject, but that are structurally sound, may still be lexed.
+ */
+class JavaCommentLexer {
+
+    private static final Set<String> MODIFIERS = new HashSet<>(Arrays.asList(
+            "public", "protected", "private", "static", "abstract", "final", "native",
+            "synchronized", "transient", "volatile", "strictfp", "default"));
+    private static final Set<String> PRIMITIVES = new HashSet<>(Arrays.asList(
+            "boolean", "byte", "char", "short", "int", "long", "float", "double", "void"));
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "abstract", "assert", "break", "case", "catch", "class", "const", "continue", "default",
+            "do", "else", "enum", "extends", "final", "finally", "for", "goto", "if", "implements",
+            "import", "instanceof", "interface", "native", "new", "package", "private", "protected",
+            "public", "return", "static", "strictfp", "super", "switch", "synchronized", "this",
+            "throw", "throws", "transient", "try", "volatile", "while", "true", "false", "null"));
+    private static final String SYMBOLS = "{}()[];,.@=<>!~?:+-*/&|^%";
+    private static final Pattern ESCAPED_BACKSLASH = Pattern.compile("\\\\u+005[cC]");
+
+    private static final Token END_OF_FILE = new Token(TokenType.SYMBOL, "", -1);
+
+    private enum TokenType { IDENTIFIER, LITERAL, SYMBOL }
+
+    // The kinds of bodies that members can be declared in
+    private enum BodyType { CLASS_OR_INTERFACE, ENUM, ANNOTATION, ANONYMOUS }
+
+    @AllArgsConstructor
+    private static class Token {
+        private final TokenType type;
+        private final String text;
+        private final int line;
+    }
+
+    @AllArgsConstructor
+    private static class LexedComment {
+        private final int startLine;
+        private final int endLine;
+        private final String content;
+        private final boolean isBlockComment;
+    }
+
+    /**
+     * Thrown when a file contains syntax the lexer does not handle
+     */
+    static class UnsupportedSyntaxException extends Exception {
+        UnsupportedSyntaxException(String message) {
+            super(message);
+        }
+    }
+
+    private final String source;
+    private final List<Token> tokens = new ArrayList<>();
+    private final List<LexedComment> comments = new ArrayList<>();
+    private final FileStructure structure = new FileStructure();
+    // The classes and interfaces that enclose the current position in the file
+    private final Deque<ClassSpan> openClasses = new ArrayDeque<>();
+    private int pos = 0;
+
+    private JavaCommentLexer(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Gets the comments in a java file
+     * @param source the contents of a java file
+     * @return a sorted list of every non-JavaDoc, non-source comment in the file
+     * @throws UnsupportedSyntaxException thrown if the file should be parsed by JavaParser instead
+     */
+    static List<GroupedComment> parseComments(String source) throws UnsupportedSyntaxException {
+        final JavaCommentLexer lexer = new JavaCommentLexer(source);
+        lexer.tokenize();
+        lexer.parseCompilationUnit();
+        return lexer.comments.stream()
+                .map(comment -> GroupedComment.fromLexedComment(comment.startLine, comment.endLine,
+                        comment.content, comment.isBlockComment, lexer.structure))
+                .filter(comment -> !comment.getCommentType().equals(TYPE_COMMENTED_SOURCE))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Splits the source into tokens, collecting comments separately.
+     * String and character literals are reduced to a single token containing only their opening quote
+     */
+    private void tokenize() throws UnsupportedSyntaxException {
+        // Like JavaParser, unicode escapes are not translated, so they only need handling as escape sequences.
+        // An escaped backslash is the exception, as JavaParser cannot lex the escape sequence following it
+        if( this.source.startsWith("\uFEFF") || ESCAPED_BACKSLASH.matcher(this.source).find() ) {
+            throw new UnsupportedSyntaxException("Byte order mark or unicode escaped backslash");
+        }
+        final int length = this.source.length();
+        int line = 1;
+        int i = 0;
+        while( i < length ) {
+            final char c = this.source.charAt(i);
+            final char next = i + 1 < length ? this.source.charAt(i + 1) : '\0';
+            if( c == '\n' ) {
+                line++;
+                i++;
+            } else if( c == '\r' ) {
+                line++;
+                i += next == '\n' ? 2 : 1;
+            } else if( c == ' ' || c == '\t' || c == '\f' ) {
+                i++;
+            } else if( c == '/' && next == '/' ) {
+                int end = i + 2;
+                while( end < length && this.source.charAt(end) != '\n' && this.source.charAt(end) != '\r' ) {
+                    end++;
+                }
+                this.comments.add(new LexedComment(line, line, this.source.substring(i + 2, end), false));
+                i = end;
+            } else if( c == '/' && next == '*' ) {
+                final int end = this.source.indexOf("*/", i + 2);
+                if( end < 0 ) {
+                    throw new UnsupportedSyntaxException("Unterminated comment");
+                }
+                final int startLine = line;
+                for( int j = i + 2; j < end; j++ ) {
+                    final char inComment = this.source.charAt(j);
+                    if( inComment == '\n' || (inComment == '\r' && this.source.charAt(j + 1) != '\n') ) {
+                        line++;
+                    }
+                }
+                // "/**/" is a block comment, anything else beginning with "/**" is JavaDoc
+                final boolean isJavadoc = this.source.charAt(i + 2) == '*' && end > i + 2;
+                if( !isJavadoc ) {
+                    this.comments.add(new LexedComment(startLine, line, this.source.substring(i + 2, end), true));
+                }
+                i = end + 2;
+            } else if( c == '"' || c == '\'' ) {
+                if( c == '"' && next == '"' && i + 2 < length && this.source.charAt(i + 2) == '"' ) {
+                    throw new UnsupportedSyntaxException("Text block");
+                }
+                int end = i + 1;
+                while( end < length && this.source.charAt(end) != c ) {
+                    final char inLiteral = this.source.charAt(end);
+                    if( inLiteral == '\n' || inLiteral == '\r' ) {
+                        throw new UnsupportedSyntaxException("Unterminated literal");
+                    }
+                    end += inLiteral == '\\' ? 2 : 1;
+                }
+                if( end >= length ) {
+                    throw new UnsupportedSyntaxException("Unterminated literal");
+                }
+                this.tokens.add(new Token(TokenType.LITERAL, String.valueOf(c), line));
+                i = end + 1;
+            } else if( Character.isJavaIdentifierStart(c) ) {
+                int end = i + 1;
+                while( end < length && Character.isJavaIdentifierPart(this.source.charAt(end)) ) {
+                    end++;
+                }
+                this.tokens.add(new Token(TokenType.IDENTIFIER, this.source.substring(i, end), line));
+                i = end;
+            } else if( (c >= '0' && c <= '9') || (c == '.' && next >= '0' && next <= '9') ) {
+                int end = i + 1;
+                while( end < length ) {
+                    final char inNumber = this.source.charAt(end);
+                    final char previous = this.source.charAt(end - 1);
+                    if( Character.isLetterOrDigit(inNumber) || inNumber == '_' || inNumber == '.' ||
+                            ((inNumber == '+' || inNumber == '-') && "eEpP".indexOf(previous) >= 0) ) {
+                        end++;
+                    } else {
+                        break;
+                    }
+                }
+                this.tokens.add(new Token(TokenType.LITERAL, this.source.substring(i, end), line));
+                i = end;
+            } else if( c == '.' && next == '.' && i + 2 < length && this.source.charAt(i + 2) == '.' ) {
+                this.tokens.add(new Token(TokenType.SYMBOL, "...", line));
+                i += 3;
+            } else if( SYMBOLS.indexOf(c) >= 0 ) {
+                this.tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), line));
+                i++;
+            } else if( c == '\u001a' && i == length - 1 ) {
+                // Optional end of file character
+                i++;
+            } else {
+                throw new UnsupportedSyntaxException("Unexpected character " + c + " on line " + line);
+            }
+        }
+    }
+
+    private void parseCompilationUnit() throws UnsupportedSyntaxException {
+        String packageName = null;
+        final int start = this.pos;
+        this.skipModifiers();
+        if( this.is("package") ) {
+            this.pos++;
+            packageName = this.parseQualifiedName();
+            this.expect(";");
+        } else {
+            this.pos = start;
+        }
+        while( this.is("import") ) {
+            this.skipPast(";");
+        }
+        while( this.pos < this.tokens.size() ) {
+            if( this.is(";") ) {
+                this.pos++;
+                continue;
+            }
+            final int declarationStart = this.pos;
+            this.skipModifiers();
+            this.parseTypeDeclaration(declarationStart, packageName);
+        }
+    }
+
+    /**
+     * Parses a class, interface, enum or annotation declaration, beginning at the keyword
+     * @param declarationStart the index of the first token of the declaration, including modifiers
+     * @param parentName the qualified name of the enclosing type, or package
+     */
+    private void parseTypeDeclaration(int declarationStart, String parentName) throws UnsupportedSyntaxException {
+        final BodyType bodyType;
+        if( this.is("class") || this.is("interface") ) {
+            bodyType = BodyType.CLASS_OR_INTERFACE;
+        } else if( this.is("enum") ) {
+            bodyType = BodyType.ENUM;
+        } else if( this.is("@") && this.peek(1).text.equals("interface") ) {
+            bodyType = BodyType.ANNOTATION;
+            this.pos++;
+        } else {
+            throw new UnsupportedSyntaxException("Expected a type declaration on line " + this.peek(0).line);
+        }
+        this.pos++;
+        final Token name = this.expectIdentifier();
+        final String qualifiedName = parentName == null ? name.text : parentName + "." + name.text;
+
+        ClassSpan span = null;
+        if( bodyType == BodyType.CLASS_OR_INTERFACE ) {
+            span = new ClassSpan(this.tokens.get(declarationStart).line, qualifiedName, name.line);
+            this.structure.addClass(span);
+            this.openClasses.push(span);
+        }
+        // Skip type parameters, extended and implemented types
+        while( !this.is("{") ) {
+            if( this.atEnd() || this.is(";") || this.is("}") || this.is("permits") ) {
+                throw new UnsupportedSyntaxException("Unexpected type header on line " + name.line);
+            }
+            this.pos++;
+        }
+        final int endLine = this.parseClassBody(bodyType, qualifiedName);
+        if( span != null ) {
+            span.setEndLine(endLine);
+            this.openClasses.pop();
+        }
+    }
+
+    /**
+     * Parses the body of a type, beginning at the opening brace
+     * @return the line of the closing brace
+     */
+    private int parseClassBody(BodyType bodyType, String typeName) throws UnsupportedSyntaxException {
+        this.expect("{");
+        if( bodyType == BodyType.ENUM ) {
+            this.parseEnumConstants(typeName);
+        }
+        while( true ) {
+            if( this.atEnd() ) {
+                throw new UnsupportedSyntaxException("Unterminated type body " + typeName);
+            } else if( this.is("}") ) {
+                return this.tokens.get(this.pos++).line;
+            } else if( this.is(";") ) {
+                this.pos++;
+            } else if( this.is("{") ) {
+                this.scanBalanced(typeName);
+            } else if( this.is("static") && this.peek(1).text.equals("{") ) {
+                this.pos++;
+                this.scanBalanced(typeName);
+            } else {
+                this.parseMember(bodyType, typeName);
+            }
+        }
+    }
+
+    private void parseEnumConstants(String typeName) throws UnsupportedSyntaxException {
+        while( !this.is("}") ) {
+            if( this.is(";") ) {
+                this.pos++;
+                return;
+            }
+            this.skipModifiers();
+            this.expectIdentifier();
+            if( this.is("(") ) {
+                this.scanBalanced(typeName);
+            }
+            if( this.is("{") ) {
+                this.parseClassBody(BodyType.ANONYMOUS, typeName);
+            }
+            if( this.is(",") ) {
+                this.pos++;
+            } else if( !this.is(";") && !this.is("}") ) {
+                throw new UnsupportedSyntaxException("Unexpected enum constant on line " + this.peek(0).line);
+            }
+        }
+    }
+
+    /**
+     * Parses a field, method, constructor or nested type declaration
+     */
+    private void parseMember(BodyType bodyType, String typeName) throws UnsupportedSyntaxException {
+        final int memberStart = this.pos;
+        this.skipModifiers();
+        if( this.is("class") || this.is("interface") || this.is("enum") ||
+                (this.is("@") && this.peek(1).text.equals("interface")) ) {
+            this.parseTypeDeclaration(memberStart, typeName);
+            return;
+        }
+        if( this.is("record") && this.peek(1).type == TokenType.IDENTIFIER ) {
+            throw new UnsupportedSyntaxException("Record on line " + this.peek(0).line);
+        }
+        if( this.is("<") ) {
+            this.skipTypeArguments();
+        }
+        if( this.peek(0).type == TokenType.IDENTIFIER && this.peek(1).text.equals("(") ) {
+            // Constructor
+            this.pos++;
+            this.scanBalanced(typeName);
+            this.skipToBody();
+            if( this.is("{") ) {
+                this.scanBalanced(typeName);
+            } else {
+                this.pos++;
+            }
+            return;
+        }
+
+        final String type = this.parseType();
+        final Token name = this.expectIdentifier();
+        if( this.is("(") && bodyType == BodyType.ANNOTATION ) {
+            // Annotation member, which may have a default value
+            this.scanUntil(";", typeName);
+            this.pos++;
+        } else if( this.is("(") ) {
+            final MethodSpan method = new MethodSpan(this.tokens.get(memberStart).line);
+            // Methods are found in the order they are declared, in every enclosing class
+            this.openClasses.forEach(span -> span.addMethod(method));
+            final List<String> parameterTypes = this.parseParameters();
+            final StringBuilder returnType = new StringBuilder(type);
+            while( this.is("[") && this.peek(1).text.equals("]") ) {
+                returnType.append("[]");
+                this.pos += 2;
+            }
+            this.skipToBody();
+            method.setEndLine(this.is("{") ? this.scanBalanced(typeName) : this.tokens.get(this.pos++).line);
+            method.setDeclaration(returnType + " " + name.text + "(" + String.join(", ", parameterTypes) + ")");
+        } else {
+            // Field with one or more variables
+            final int lastLine = this.scanUntil(";", typeName);
+            this.pos++;
+            if( bodyType == BodyType.CLASS_OR_INTERFACE ) {
+                this.openClasses.forEach(span -> span.addField(lastLine));
+            }
+        }
+    }
+
+    /**
+     * @return the types of each parameter of a method, as printed by JavaParser
+     */
+    private List<String> parseParameters() throws UnsupportedSyntaxException {
+        this.expect("(");
+        final List<String> parameterTypes = new ArrayList<>();
+        while( !this.is(")") ) {
+            this.skipModifiers();
+            final StringBuilder type = new StringBuilder(this.parseType());
+            if( this.is("...") ) {
+                type.append("...");
+                this.pos++;
+            }
+            // Receiver parameters ("this" or "Outer.this") are not parameters
+            boolean isReceiver = this.is("this");
+            if( isReceiver ) {
+                this.pos++;
+            } else {
+                this.expectIdentifier();
+                if( this.is(".") ) {
+                    this.pos++;
+                    this.expect("this");
+                    isReceiver = true;
+                }
+            }
+            while( this.is("[") && this.peek(1).text.equals("]") ) {
+                type.append("[]");
+                this.pos += 2;
+            }
+            if( !isReceiver ) {
+                parameterTypes.add(type.toString());
+            }
+            if( this.is(",") ) {
+                this.pos++;
+            } else if( !this.is(")") ) {
+                throw new UnsupportedSyntaxException("Unexpected parameter on line " + this.peek(0).line);
+            }
+        }
+        this.pos++;
+        return parameterTypes;
+    }
+
+    /**
+     * @return the type at the current position, as printed by JavaParser
+     */
+    private String parseType() throws UnsupportedSyntaxException {
+        final Token first = this.expectIdentifier();
+        final StringBuilder type = new StringBuilder(first.text);
+        if( !PRIMITIVES.contains(first.text) ) {
+            if( this.is("<") ) {
+                type.append(this.parseTypeArguments());
+            }
+            while( this.is(".") && this.peek(1).type == TokenType.IDENTIFIER && !KEYWORDS.contains(this.peek(1).text) ) {
+                type.append('.').append(this.tokens.get(this.pos + 1).text);
+                this.pos += 2;
+                if( this.is("<") ) {
+                    type.append(this.parseTypeArguments());
+                }
+            }
+        }
+        while( this.is("[") && this.peek(1).text.equals("]") ) {
+            type.append("[]");
+            this.pos += 2;
+        }
+        return type.toString();
+    }
+
+    private String parseTypeArguments() throws UnsupportedSyntaxException {
+        this.expect("<");
+        final List<String> typeArguments = new ArrayList<>();
+        while( !this.is(">") ) {
+            if( this.is("?") ) {
+                this.pos++;
+                if( this.is("extends") || this.is("super") ) {
+                    final String bound = this.tokens.get(this.pos++).text;
+                    typeArguments.add("? " + bound + " " + this.parseType());
+                } else {
+                    typeArguments.add("?");
+                }
+            } else {
+                typeArguments.add(this.parseType());
+            }
+            if( this.is(",") ) {
+                this.pos++;
+            } else if( !this.is(">") ) {
+                throw new UnsupportedSyntaxException("Unexpected type argument on line " + this.peek(0).line);
+            }
+        }
+        this.pos++;
+        return "<" + String.join(", ", typeArguments) + ">";
+    }
+
+    private String parseQualifiedName() throws UnsupportedSyntaxException {
+        final StringBuilder name = new StringBuilder(this.expectIdentifier().text);
+        while( this.is(".") ) {
+            this.pos++;
+            name.append('.').append(this.expectIdentifier().text);
+        }
+        return name.toString();
+    }
+
+    /**
+     * Scans past a balanced pair of braces, parentheses or brackets, beginning at the opening token,
+     * while finding any anonymous or local classes declared within them
+     * @return the line of the closing token
+     */
+    private int scanBalanced(String typeName) throws UnsupportedSyntaxException {
+        final String open = this.tokens.get(this.pos++).text;
+        final String close = open.equals("{") ? "}" : open.equals("(") ? ")" : "]";
+        while( !this.is(close) ) {
+            if( this.atEnd() || this.is("}") || this.is(")") || this.is("]") ) {
+                throw new UnsupportedSyntaxException("Unbalanced " + open + " in " + typeName);
+            }
+            this.scanToken(typeName);
+        }
+        return this.tokens.get(this.pos++).line;
+    }
+
+    /**
+     * Scans up to the given token, which must occur outside any braces, parentheses or brackets
+     * @return the line of the last token before the given token
+     */
+    private int scanUntil(String end, String typeName) throws UnsupportedSyntaxException {
+        while( !this.is(end) ) {
+            if( this.atEnd() || this.is("}") || this.is(")") || this.is("]") ) {
+                throw new UnsupportedSyntaxException("Expected " + end + " in " + typeName);
+            }
+            this.scanToken(typeName);
+        }
+        return this.tokens.get(this.pos - 1).line;
+    }
+
+    /**
+     * Scans past a single token of a block or expression, or the whole construct if it begins one
+     */
+    private void scanToken(String typeName) throws UnsupportedSyntaxException {
+        final Token token = this.peek(0);
+        final boolean isQualified = this.pos > 0 && this.tokens.get(this.pos - 1).text.equals(".");
+        if( token.type != TokenType.IDENTIFIER && token.type != TokenType.SYMBOL ) {
+            this.pos++;
+        } else if( this.is("{") || this.is("(") || this.is("[") ) {
+            this.scanBalanced(typeName);
+        } else if( this.is("new") ) {
+            this.scanInstanceCreation(typeName);
+        } else if( this.is("class") && !isQualified ) {
+            this.parseLocalClass(typeName);
+        } else if( (this.is("interface") || this.is("enum") || this.is("yield")) && !isQualified ) {
+            throw new UnsupportedSyntaxException("Unexpected " + token.text + " on line " + token.line);
+        } else if( this.is("record") && !isQualified && this.peek(1).type == TokenType.IDENTIFIER &&
+                (this.peek(2).text.equals("(") || this.peek(2).text.equals("<")) ) {
+            throw new UnsupportedSyntaxException("Record on line " + token.line);
+        } else if( (this.is("case") || this.is("default")) && this.isArrowLabel() ) {
+            throw new UnsupportedSyntaxException("Switch rule on line " + token.line);
+        } else {
+            this.pos++;
+        }
+    }
+
+    /**
+     * @return true if the switch label at the current position ends with an arrow instead of a colon
+     */
+    private boolean isArrowLabel() {
+        for( int i = this.pos + 1; i < this.tokens.size(); i++ ) {
+            final String text = this.tokens.get(i).text;
+            if( text.equals(":") || text.equals(";") || text.equals("{") || text.equals("}") ) {
+                return false;
+            } else if( text.equals("-") && i + 1 < this.tokens.size() && this.tokens.get(i + 1).text.equals(">") ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans past an instance creation expression, parsing the body of an anonymous class if one exists
+     */
+    private void scanInstanceCreation(String typeName) throws UnsupportedSyntaxException {
+        this.pos++;
+        if( this.is("<") ) {
+            this.skipTypeArguments();
+        }
+        if( this.is("@") ) {
+            throw new UnsupportedSyntaxException("Annotated type on line " + this.peek(0).line);
+        }
+        // Skip the created type
+        while( this.peek(0).type == TokenType.IDENTIFIER || this.is(".") || this.is("<") ) {
+            if( this.is("<") ) {
+                this.skipTypeArguments();
+            } else {
+                this.pos++;
+            }
+        }
+        // Arrays and method references are scanned as usual
+        if( this.is("(") ) {
+            this.scanBalanced(typeName);
+            if( this.is("{") ) {
+                this.parseClassBody(BodyType.ANONYMOUS, typeName);
+            }
+        }
+    }
+
+    /**
+     * Parses a class declared within a block, beginning at the class keyword
+     */
+    private void parseLocalClass(String typeName) throws UnsupportedSyntaxException {
+        int declarationStart = this.pos;
+        while( declarationStart > 0 && MODIFIERS.contains(this.tokens.get(declarationStart - 1).text) ) {
+            declarationStart--;
+        }
+        // Annotated local classes, or class keywords outside of a statement, are left to JavaParser
+        final String previous = declarationStart > 0 ? this.tokens.get(declarationStart - 1).text : "";
+        if( !previous.equals("{") && !previous.equals("}") && !previous.equals(";") && !previous.equals(":") ) {
+            throw new UnsupportedSyntaxException("Unexpected class on line " + this.peek(0).line);
+        }
+        this.parseTypeDeclaration(declarationStart, typeName);
+    }
+
+    private void skipModifiers() throws UnsupportedSyntaxException {
+        while( true ) {
+            if( MODIFIERS.contains(this.peek(0).text) ) {
+                this.pos++;
+            } else if( this.is("@") && !this.peek(1).text.equals("interface") ) {
+                this.pos++;
+                this.parseQualifiedName();
+                if( this.is("(") ) {
+                    this.skipParentheses();
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipParentheses() throws UnsupportedSyntaxException {
+        int depth = 0;
+        do {
+            if( this.atEnd() ) {
+                throw new UnsupportedSyntaxException("Unbalanced parentheses");
+            } else if( this.is("(") ) {
+                depth++;
+            } else if( this.is(")") ) {
+                depth--;
+            }
+            this.pos++;
+        } while( depth > 0 );
+    }
+
+    private void skipTypeArguments() throws UnsupportedSyntaxException {
+        int depth = 0;
+        do {
+            if( this.atEnd() || this.is(";") || this.is("{") || this.is("}") ) {
+                throw new UnsupportedSyntaxException("Unbalanced type arguments");
+            } else if( this.is("<") ) {
+                depth++;
+            } else if( this.is(">") ) {
+                depth--;
+            }
+            this.pos++;
+        } while( depth > 0 );
+    }
+
+    /**
+     * Skips past a throws clause to the body of a method or constructor, or the semicolon ending it
+     */
+    private void skipToBody() throws UnsupportedSyntaxException {
+        while( !this.is("{") && !this.is(";") ) {
+            if( this.atEnd() || this.is("}") ) {
+                throw new UnsupportedSyntaxException("Expected a method body on line " + this.peek(0).line);
+            }
+            this.pos++;
+        }
+    }
+
+    private void skipPast(String text) throws UnsupportedSyntaxException {
+        while( !this.is(text) ) {
+            if( this.atEnd() ) {
+                throw new UnsupportedSyntaxException("Expected " + text);
+            }
+            this.pos++;
+        }
+        this.pos++;
+    }
+
+    private Token expectIdentifier() throws UnsupportedSyntaxException {
+        final Token token = this.peek(0);
+        if( token.type != TokenType.IDENTIFIER || KEYWORDS.contains(token.text) ) {
+            throw new UnsupportedSyntaxException("Expected an identifier on line " + token.line);
+        }
+        this.pos++;
+        return token;
+    }
+
+    private void expect(String text) throws UnsupportedSyntaxException {
+        if( !this.is(text) ) {
+            throw new UnsupportedSyntaxException("Expected " + text + " on line " + this.peek(0).line);
+        }
+        this.pos++;
+    }
+
+    private boolean is(String text) {
+        final Token token = this.peek(0);
+        return token.type != TokenType.LITERAL && token.text.equals(text);
+    }
+
+    private boolean atEnd() {
+        return this.pos >= this.tokens.size();
+    }
+
+    private Token peek(int offset) {
+        return this.pos + offset < this.tokens.size() ? this.tokens.get(this.pos + offset) : END_OF_FILE;
+    }
+}
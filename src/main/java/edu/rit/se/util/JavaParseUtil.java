@@ -4,15 +4,30 @@ import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.Position;
 import com.github.javaparser.Range;
+import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.comments.CommentsCollection;
-import edu.rit.se.satd.comment.IgnorableWords;
+import edu.rit.se.satd.comment.model.FileStructure;
 import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.metrics.Count;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
+import edu.rit.se.satd.mining.MinerConfiguration;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Repository;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static edu.rit.se.satd.comment.model.GroupedComment.TYPE_COMMENTED_SOURCE;
 
@@ -20,29 +35,116 @@ public class JavaParseUtil {
 
     public static Range NULL_RANGE = new Range(new Position(-1, -1), new Position(-1, -1));
 
+    /**
+     * The parsers that can be used to find the comments in a java file
+     */
+    public enum CommentParser {
+        // Builds a full syntax tree of each file
+        JAVAPARSER,
+        // Only recognizes the declarations needed to find the containing class and method of
+        // each comment, and uses JavaParser for any file containing syntax it does not handle
+        LEXER
+    }
+
     /**
      * Gets a list of comments from the input java file
      * @param file An input stream containing the contents of a java file to parse for comments
+     * @param config the configuration of the parser and the comments to ignore
+     * @return a list of grouped comments that correlate to comments from the parsed java file
+     */
+    public static List<GroupedComment> parseFileForComments(InputStream file, String fileName,
+                                                            MinerConfiguration config)
+            throws KnownParserException, IOException {
+        return groupComments(parseUngroupedComments(file, fileName, config.getCommentParser()),
+                config.getIgnorableWords());
+    }
+
+    /**
+     * Gets a list of comments from a java file stored in a git repository. The parsed comments
+     * are shared through the ParsedCommentCache, so each blob only needs to be parsed once by
+     * each comment parser.
+     * @param repository the repository containing the blob
+     * @param blobId the ID of the blob containing the java file
+     * @param fileName the name of the file, used for reporting parse errors
+     * @param config the configuration of the parser and the comments to ignore
      * @return a list of grouped comments that correlate to comments from the parsed java file
+     * @throws IOException thrown if the blob could not be read
+     */
+    public static List<GroupedComment> parseBlobForComments(Repository repository, ObjectId blobId, String fileName,
+                                                            MinerConfiguration config)
+            throws KnownParserException, IOException {
+        return groupComments(ParsedCommentCache.getInstance().getComments(
+                blobId, config.getCommentParser(), fileName, () -> {
+                    final ObjectLoader blob;
+                    try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.BLOB_LOAD) ) {
+                        blob = repository.open(blobId);
+                    }
+                    MinerMetrics.count(Count.BLOB_BYTES, blob.getSize());
+                    try( InputStream blobStream = blob.openStream() ) {
+                        return parseUngroupedComments(blobStream, fileName, config.getCommentParser());
+                    }
+                }),
+                config.getIgnorableWords());
+    }
+
+    /**
+     * @param file An input stream containing the contents of a java file to parse for comments
+     * @param parser the parser to find the comments with
+     * @return a sorted list of every non-JavaDoc, non-source comment in the file
+     */
+    private static List<GroupedComment> parseUngroupedComments(InputStream file, String fileName,
+                                                               CommentParser parser)
+            throws KnownParserException, IOException {
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.COMMENT_PARSE) ) {
+            if( parser == CommentParser.LEXER ) {
+                final String source = IOUtils.toString(file, StandardCharsets.UTF_8);
+                try {
+                    return JavaCommentLexer.parseComments(source);
+                } catch (JavaCommentLexer.UnsupportedSyntaxException e) {
+                    return parseUngroupedComments(new JavaParser().parse(source), fileName);
+                }
+            }
+            return parseUngroupedComments(new JavaParser().parse(file), fileName);
+        }
+    }
+
+    /**
+     * @param parsedFile the result of parsing a java file with JavaParser
+     * @return a sorted list of every non-JavaDoc, non-source comment in the file
      */
-    public static List<GroupedComment> parseFileForComments(InputStream file, String fileName) throws KnownParserException {
-        final JavaParser parser = new JavaParser();
-        final ParseResult parsedFile = parser.parse(file);
+    private static List<GroupedComment> parseUngroupedComments(ParseResult parsedFile, String fileName)
+            throws KnownParserException {
         if( !parsedFile.getProblems().isEmpty() ) {
+            MinerMetrics.count(Count.PARSE_ERRORS, 1);
             throw new KnownParserException(fileName);
         }
-        final Iterator<GroupedComment> allComments = parsedFile.getCommentsCollection().isPresent() ?
+        // Comments are attributed to the nodes of their file, so the structure
+        // of each file is built once and shared by all of its comments
+        final Map<Node, FileStructure> structures = new IdentityHashMap<>();
+        return parsedFile.getCommentsCollection().isPresent() ?
                 ((CommentsCollection)parsedFile.getCommentsCollection().get())
                         .getComments()
                         .stream()
                         .filter(comment -> !comment.isJavadocComment())
-                        .map(GroupedComment::fromJavaParserComment)
+                        .map(comment -> GroupedComment.fromJavaParserComment(comment,
+                                structures.computeIfAbsent(comment.findRootNode(), FileStructure::fromJavaParser)))
                         .filter(comment -> !comment.getCommentType().equals(TYPE_COMMENTED_SOURCE))
-                        .filter(comment -> IgnorableWords.getIgnorableWords().stream()
-                                .noneMatch(word -> comment.getComment().contains(word)))
                         .sorted()
-                        .iterator()
-                : Collections.emptyIterator();
+                        .collect(Collectors.toList())
+                : Collections.emptyList();
+    }
+
+    /**
+     * Removes ignored comments and joins adjacent comments into groups
+     * @param comments a sorted list of comments parsed from a single file
+     * @param ignorableWords comments containing any of these words are removed
+     * @return a list of grouped comments
+     */
+    private static List<GroupedComment> groupComments(List<GroupedComment> comments, Set<String> ignorableWords) {
+        final Iterator<GroupedComment> allComments = comments.stream()
+                .filter(comment -> ignorableWords.stream()
+                        .noneMatch(word -> comment.getComment().contains(word)))
+                .iterator();
 
         final List<GroupedComment> groupedComments = new ArrayList<>();
         GroupedComment previousComment = null;
@@ -75,7 +177,19 @@ public class JavaParseUtil {
      * @return True if the ranges overlap, else False
      */
     public static boolean isRangeBetweenBounds(Range range, int start, int end) {
-        return Math.max(range.begin.line, start) <= Math.min(range.end.line, end);
+        return isRangeBetweenBounds(range.begin.line, range.end.line, start, end);
+    }
+
+    /**
+     * Determines if the given range of lines occurred within the start and end bounds
+     * @param rangeStart the first line of the range
+     * @param rangeEnd the last line of the range
+     * @param start the starting bound
+     * @param end the ending bound
+     * @return True if the ranges overlap, else False
+     */
+    public static boolean isRangeBetweenBounds(int rangeStart, int rangeEnd, int start, int end) {
+        return Math.max(rangeStart, start) <= Math.min(rangeEnd, end);
     }
 
 }
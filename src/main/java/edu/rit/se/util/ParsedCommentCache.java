@@ -0,0 +1,171 @@
+package edu.rit.se.util;
+
+import edu.rit.se.satd.comment.model.GroupedComment;
+import lombok.Value;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory-bounded, least-recently-used cache of the comments parsed from Java blobs.
+ * Blobs are content-addressed, so a single parse can be shared by every diff and
+ * repository the blob appears in. Comments are cached separately for each comment parser,
+ * as parsers may find different comments in the same blob. Blobs which could not be parsed are also remembered, so
+ * they are not parsed again each time they are seen.
+ * Stored statically and globally available
+ */
+public class ParsedCommentCache {
+
+    // The default upper bound on the estimated size of all cached comments
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    // Rough per-object overheads used to estimate the memory held by an entry
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int COMMENT_OVERHEAD_BYTES = 96;
+
+    private static ParsedCommentCache instance = new ParsedCommentCache(DEFAULT_MAX_BYTES);
+
+    private final long maxBytes;
+    private long curBytes = 0;
+    // Access-ordered so the eldest entry is always the least recently used
+    private final LinkedHashMap<CacheKey, CacheEntry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ParsedCommentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public static ParsedCommentCache getInstance() {
+        return ParsedCommentCache.instance;
+    }
+
+    /**
+     * Replaces the shared cache with an empty cache of the given size
+     * @param maxBytes the upper bound on the estimated memory held by the cache. A value
+     *                 of 0 disables caching.
+     */
+    public static void setMaxBytes(long maxBytes) {
+        ParsedCommentCache.instance = new ParsedCommentCache(maxBytes);
+    }
+
+    /**
+     * Gets the comments parsed from a blob, parsing the blob only if it is not already cached
+     * @param blobId the ID of the blob
+     * @param commentParser the comment parser used to parse the blob
+     * @param fileName the name of the file, used for reporting parse errors
+     * @param parser parses the blob when it is not cached
+     * @return an immutable list of the comments in the blob
+     * @throws KnownParserException thrown if the blob could not be parsed, now or when first seen
+     * @throws IOException thrown if the blob could not be read
+     */
+    public List<GroupedComment> getComments(ObjectId blobId, JavaParseUtil.CommentParser commentParser,
+                                            String fileName, BlobParser parser)
+            throws KnownParserException, IOException {
+        final CacheKey key = new CacheKey(blobId.copy(), commentParser);
+        synchronized (this.entries) {
+            final CacheEntry cached = this.entries.get(key);
+            if( cached != null ) {
+                this.hits.incrementAndGet();
+                if( cached.comments == null ) {
+                    throw new KnownParserException(fileName);
+                }
+                return cached.comments;
+            }
+        }
+        this.misses.incrementAndGet();
+        // Parse outside of the lock so other threads are not held up by this blob
+        final CacheEntry parsed;
+        try {
+            parsed = new CacheEntry(Collections.unmodifiableList(parser.parse()));
+        } catch (KnownParserException e) {
+            this.put(key, new CacheEntry(null));
+            throw e;
+        }
+        this.put(key, parsed);
+        return parsed.comments;
+    }
+
+    private void put(CacheKey key, CacheEntry entry) {
+        if( entry.sizeBytes <= this.maxBytes ) {
+            synchronized (this.entries) {
+                if( this.entries.put(key, entry) == null ) {
+                    this.curBytes += entry.sizeBytes;
+                }
+                this.evictToSize();
+            }
+        }
+    }
+
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    public double getHitRate() {
+        final long lookups = this.getHits() + this.getMisses();
+        return lookups > 0 ? (double) this.getHits() / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Parsed comment cache: %,d hits, %,d misses (%.1f%% hit rate), %,d evictions",
+                this.getHits(), this.getMisses(), 100 * this.getHitRate(), this.getEvictions());
+    }
+
+    private void evictToSize() {
+        final Iterator<Map.Entry<CacheKey, CacheEntry>> eldest = this.entries.entrySet().iterator();
+        while( this.curBytes > this.maxBytes && eldest.hasNext() ) {
+            this.curBytes -= eldest.next().getValue().sizeBytes;
+            eldest.remove();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    @Value
+    private static class CacheKey {
+        ObjectId blobId;
+        JavaParseUtil.CommentParser commentParser;
+    }
+
+    private static class CacheEntry {
+
+        // Null if the blob could not be parsed
+        private final List<GroupedComment> comments;
+        private final long sizeBytes;
+
+        private CacheEntry(List<GroupedComment> comments) {
+            this.comments = comments;
+            long size = ENTRY_OVERHEAD_BYTES;
+            for( GroupedComment comment : comments != null ? comments : Collections.<GroupedComment>emptyList() ) {
+                // Strings are stored as UTF-16
+                size += COMMENT_OVERHEAD_BYTES + 2L * (comment.getComment().length() +
+                        comment.getContainingClass().length() + comment.getContainingMethod().length());
+            }
+            this.sizeBytes = size;
+        }
+    }
+
+    /**
+     * Parses the contents of a blob into comments
+     */
+    @FunctionalInterface
+    public interface BlobParser {
+        List<GroupedComment> parse() throws KnownParserException, IOException;
+    }
+}
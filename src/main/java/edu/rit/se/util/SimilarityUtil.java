@@ -1,6 +1,8 @@
 package edu.rit.se.util;
 
 import edu.rit.se.satd.comment.model.GroupedComment;
+import edu.rit.se.satd.metrics.MinerMetrics;
+import edu.rit.se.satd.metrics.Stage;
 import org.apache.commons.text.similarity.LevenshteinDistance;
 
 /**
@@ -8,10 +10,13 @@ import org.apache.commons.text.similarity.LevenshteinDistance;
  */
 public class SimilarityUtil {
 
-    // A constant value which determines the Levenshtein distance which a comment
+    // The default value which determines the Levenshtein distance which a comment
     // must share with another comment in order to assume one was modified to become
     // the other
-    private static double LEVENSHTEIN_DISTANCE_MIN = 0.50;
+    public static final double DEFAULT_LEVENSHTEIN_DISTANCE_MIN = 0.50;
+
+    // The longest string whose distance can be computed with one bit per character in a long
+    static final int MAX_BIT_PARALLEL_LENGTH = Long.SIZE;
 
     /**
      * Determines if the two comments are similar enough to constitute them being classified
@@ -19,21 +24,175 @@ public class SimilarityUtil {
      * in an un-related manner
      * @param comment1 A grouped comment
      * @param comment2 A grouped comment
+     * @param levenshteinDistanceMin the greatest normalized Levenshtein distance between
+     *                               similar comments
      * @return True if the comments are similar enough, else false
      */
-    public static boolean commentsAreSimilar(GroupedComment comment1, GroupedComment comment2) {
-        if( comment1.getComment().isEmpty() && comment2.getComment().isEmpty() ) {
+    public static boolean commentsAreSimilar(GroupedComment comment1, GroupedComment comment2,
+                                             double levenshteinDistanceMin) {
+        try( MinerMetrics.StageTimer ignored = MinerMetrics.time(Stage.SIMILARITY) ) {
+            return stringsAreSimilar(comment1.getComment(), comment2.getComment(), levenshteinDistanceMin);
+        }
+    }
+
+    /**
+     * Determines if one string contains the other, or if their Levenshtein distance normalized by
+     * the length of the longer string is no greater than the given threshold.
+     *
+     * The distance is only computed as far as is needed to decide the result. Strings whose
+     * lengths alone differ by more than the threshold allows are rejected without computing it,
+     * and the computation stops once the distance is known to exceed the threshold.
+     * @param str1 A string
+     * @param str2 A string
+     * @param levenshteinDistanceMin the greatest normalized Levenshtein distance between
+     *                               similar strings
+     * @return True if the strings are similar enough, else false
+     */
+    public static boolean stringsAreSimilar(String str1, String str2, double levenshteinDistanceMin) {
+        if( str1.isEmpty() && str2.isEmpty() ) {
             return true;
         }
-        if(comment1.getComment().contains(comment2.getComment()) || comment2.getComment().contains(comment1.getComment())) {
+        if( str1.contains(str2) || str2.contains(str1) ) {
             return true;
         }
-        return LEVENSHTEIN_DISTANCE_MIN >= new LevenshteinDistance()
-                .apply(comment1.getComment(), comment2.getComment()) /
-                    (double)Integer.max(comment1.getComment().length(), comment2.getComment().length());
+        final int maxDistance = getMaxDistance(
+                Integer.max(str1.length(), str2.length()), levenshteinDistanceMin);
+        // Every character by which the strings' lengths differ must be inserted
+        if( Math.abs(str1.length() - str2.length()) > maxDistance ) {
+            return false;
+        }
+        return boundedDistance(str1, str2, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * @param length the length of the longer of two strings
+     * @param levenshteinDistanceMin the greatest normalized Levenshtein distance between
+     *                               similar strings
+     * @return the greatest Levenshtein distance between similar strings of the given length,
+     * or -1 if no distance is small enough
+     */
+    static int getMaxDistance(int length, double levenshteinDistanceMin) {
+        if( levenshteinDistanceMin >= 1 ) {
+            return length;
+        }
+        // Adjusted so the result matches the normalized distance compared as a double
+        int maxDistance = (int) Math.max(-1, Math.floor(levenshteinDistanceMin * length));
+        while( maxDistance < length && (maxDistance + 1) / (double) length <= levenshteinDistanceMin ) {
+            maxDistance++;
+        }
+        while( maxDistance >= 0 && maxDistance / (double) length > levenshteinDistanceMin ) {
+            maxDistance--;
+        }
+        return maxDistance;
     }
 
-    public static void setLevenshteinDistanceMin(double newMin) {
-        LEVENSHTEIN_DISTANCE_MIN = newMin;
+    /**
+     * @param str1 A string
+     * @param str2 A string
+     * @param maxDistance the greatest distance of interest
+     * @return the Levenshtein distance between the strings if it is no greater than maxDistance,
+     * else any value greater than maxDistance
+     */
+    static int boundedDistance(String str1, String str2, int maxDistance) {
+        if( maxDistance < 0 ) {
+            return 0;
+        }
+        final String shorter = str1.length() <= str2.length() ? str1 : str2;
+        final String longer = shorter == str1 ? str2 : str1;
+        if( shorter.length() <= MAX_BIT_PARALLEL_LENGTH ) {
+            return bitParallelDistance(shorter, longer, maxDistance);
+        }
+        final int distance = new LevenshteinDistance(maxDistance).apply(str1, str2);
+        return distance == -1 ? maxDistance + 1 : distance;
+    }
+
+    /**
+     * Computes the Levenshtein distance with Myers' bit-vector algorithm, as adapted to edit
+     * distance by Hyyrö. Each column of the distance matrix is held as the vertical differences
+     * between its cells, one bit per character of the pattern, so each character of the text
+     * takes a constant number of operations.
+     * @param pattern A string of at most MAX_BIT_PARALLEL_LENGTH characters
+     * @param text A string
+     * @param maxDistance the greatest distance of interest
+     * @return the Levenshtein distance between the strings if it is no greater than maxDistance,
+     * else any value greater than maxDistance
+     */
+    static int bitParallelDistance(String pattern, String text, int maxDistance) {
+        final int m = pattern.length();
+        if( m == 0 ) {
+            return text.length();
+        }
+        final PatternMasks masks = new PatternMasks(pattern);
+        final long lastBit = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for( int j = 0; j < text.length(); j++ ) {
+            final long eq = masks.get(text.charAt(j));
+            final long xv = eq | mv;
+            final long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if( (ph & lastBit) != 0 ) {
+                score++;
+            } else if( (mh & lastBit) != 0 ) {
+                score--;
+            }
+            // The remaining characters can lower the distance by at most one each
+            if( score - (text.length() - j - 1) > maxDistance ) {
+                return maxDistance + 1;
+            }
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+        }
+        return score;
+    }
+
+    /**
+     * The positions at which each character occurs in a pattern, as a bit mask
+     */
+    private static class PatternMasks {
+
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars;
+        private final long[] otherMasks;
+        private int nOtherChars = 0;
+
+        PatternMasks(String pattern) {
+            this.otherChars = new char[pattern.length()];
+            this.otherMasks = new long[pattern.length()];
+            for( int i = 0; i < pattern.length(); i++ ) {
+                final char c = pattern.charAt(i);
+                if( c < this.asciiMasks.length ) {
+                    this.asciiMasks[c] |= 1L << i;
+                } else {
+                    int index = this.indexOf(c);
+                    if( index == -1 ) {
+                        index = this.nOtherChars++;
+                        this.otherChars[index] = c;
+                    }
+                    this.otherMasks[index] |= 1L << i;
+                }
+            }
+        }
+
+        long get(char c) {
+            if( c < this.asciiMasks.length ) {
+                return this.asciiMasks[c];
+            }
+            final int index = this.indexOf(c);
+            return index == -1 ? 0L : this.otherMasks[index];
+        }
+
+        private int indexOf(char c) {
+            for( int i = 0; i < this.nOtherChars; i++ ) {
+                if( this.otherChars[i] == c ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
     }
 }